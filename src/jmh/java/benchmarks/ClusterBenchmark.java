@@ -0,0 +1,201 @@
+package main.java.benchmarks;
+
+import main.java.authenticated_reliable_links.ReliableLink;
+import main.java.common.ConfigLoader;
+import main.java.common.KeyManager;
+import main.java.common.Message;
+import main.java.common.MessageHandler;
+import main.java.common.MessageType;
+import main.java.common.NetworkManager;
+import main.java.common.NodeRegistry;
+import main.java.transport.InMemoryTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs a cluster of servers and a client in this JVM, over an in-memory network of their own (see {@link InMemoryTransport}),
+ * and measures a client request going through the whole networking stack: the client broadcasts it to every server,
+ * and each server answers with a decision. Only the consensus is left out, the servers answer as soon as they receive it.
+ * The nodes use the ports and the settings of a configuration file (config.cfg unless given) and the keys generated
+ * by init_system.sh, so it must run in the root of the project.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-DLOG_LEVEL=warn") // for logback.xml, otherwise every message is logged
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClusterBenchmark {
+    private static final int CLIENT_ID = 0;
+    private static final long SESSION_TIMEOUT = TimeUnit.SECONDS.toMillis(30); // to set up every session
+    private static final long REPLY_TIMEOUT = 10;                                // seconds to receive every decision
+
+    @Param({"config.cfg"})
+    private String configFile; // e.g. with MEMORY_LOSS_PERCENT to measure retransmissions
+
+    @Param({"4", "7"})
+    private int servers; // at most NUM_SERVERS, whose keys exist
+
+    @Param({"64", "1024"})
+    private int contentSize; // characters of the request, e.g. a transfer or a contract call
+
+    private final Map<Long, CountDownLatch> pending = new ConcurrentHashMap<>(); // decisions missing for each request
+    private InMemoryTransport.Network network;
+    private NetworkManager client;
+    private Map<Integer, NodeRegistry> clientServers; // the servers, as seen by the client
+    private String content;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        ConfigLoader config = new ConfigLoader(configFile);
+        network = new InMemoryTransport.Network();
+        char[] chars = new char[contentSize];
+        Arrays.fill(chars, 'a');
+        content = new String(chars);
+
+        Map<Integer, NodeRegistry> serverClients = new HashMap<>(); // the client, as seen by each server
+        for (int id = 0; id < servers; id++) {
+            Map<Integer, NodeRegistry> nodes = registries(config, "server", "BASE_PORT_SERVER_TO_SERVER");
+            Map<Integer, NodeRegistry> clients = registries(config, "client", "BASE_PORT_CLIENTS");
+            KeyManager keyManager = new KeyManager(id, "server");
+            NetworkManager server = new NetworkManager(id, keyManager, config, transport(config, "server" + id));
+            Node serverHandler = new Node(nodes, keyManager, server, true, (message, sender) -> { });
+            Node clientHandler = new Node(clients, keyManager, server, false, (message, sender) ->
+                    server.sendMessage(new Message(server.generateMessageId(), MessageType.DECISION, server.getId(),
+                            String.valueOf(message.getId())), sender));
+            server.allowPeers(clients.values());
+            server.resumeSessions(clients.values());
+            server.startServerCommunications(config.getIntProperty("BASE_PORT_SERVER_TO_SERVER") + id,
+                    config.getIntProperty("BASE_PORT_CLIENT_TO_SERVER") + id, serverHandler, clientHandler, nodes.values());
+            serverClients.put(id, clients.get(CLIENT_ID));
+        }
+
+        clientServers = registries(config, "server", "BASE_PORT_CLIENT_TO_SERVER");
+        KeyManager keyManager = new KeyManager(CLIENT_ID, "client");
+        client = new NetworkManager(CLIENT_ID, keyManager, config, transport(config, "client" + CLIENT_ID));
+        Node serverHandler = new Node(clientServers, keyManager, client, false, (message, sender) -> {
+            CountDownLatch decisions = pending.get(Long.parseLong(message.getContent()));
+            if (decisions != null) decisions.countDown();
+        });
+        client.startClientCommunications(config.getIntProperty("BASE_PORT_CLIENTS") + CLIENT_ID, serverHandler, clientServers.values());
+
+        // requests sent before a server has the session key are dropped
+        long deadline = System.currentTimeMillis() + SESSION_TIMEOUT;
+        while (!serverClients.values().stream().allMatch(node -> node.getSendSessionKey() != null)) {
+            if (System.currentTimeMillis() > deadline) throw new IllegalStateException("Sessions with the client were not set up");
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        network.close();
+    }
+
+    /**
+     * Sends a request to every server and waits for the decision of each one.
+     */
+    @Benchmark
+    public void request() throws InterruptedException {
+        long id = client.generateMessageId();
+        CountDownLatch decisions = new CountDownLatch(servers);
+        pending.put(id, decisions);
+        client.broadcastMessage(new Message(id, MessageType.CLIENT_WRITE, CLIENT_ID, content), clientServers.values());
+        boolean decided = decisions.await(REPLY_TIMEOUT, TimeUnit.SECONDS);
+        pending.remove(id);
+        if (!decided) throw new IllegalStateException("Missing decisions for request " + id);
+    }
+
+    private InMemoryTransport transport(ConfigLoader config, String name) {
+        return new InMemoryTransport(name, config.getIntProperty("MEMORY_LATENCY_MICROS", 0),
+                config.getIntProperty("MEMORY_REORDER_MICROS", 0), config.getIntProperty("MEMORY_LOSS_PERCENT", 0), network);
+    }
+
+    /**
+     * Creates the registries of the servers of the cluster or of the client, each node having its own.
+     */
+    private Map<Integer, NodeRegistry> registries(ConfigLoader config, String type, String basePort) {
+        Map<Integer, NodeRegistry> nodes = new HashMap<>();
+        int count = "server".equals(type) ? servers : CLIENT_ID + 1;
+        for (int id = 0; id < count; id++) {
+            nodes.put(id, new NodeRegistry(id, type, "localhost", config.getIntProperty(basePort) + id));
+        }
+        return nodes;
+    }
+
+    /**
+     * Handles the messages of a node as the handlers of the servers and the client do, passing the requests and the
+     * decisions received for the first time to a callback.
+     */
+    private static class Node implements MessageHandler {
+        private final Map<Integer, NodeRegistry> senders;
+        private final KeyManager keyManager;
+        private final NetworkManager networkManager;
+        private final boolean betweenServers; // one-way sessions and heartbeats, otherwise two-way sessions with a client
+        private final BiConsumer<Message, NodeRegistry> received;
+
+        private Node(Map<Integer, NodeRegistry> senders, KeyManager keyManager, NetworkManager networkManager,
+                     boolean betweenServers, BiConsumer<Message, NodeRegistry> received) {
+            this.senders = senders;
+            this.keyManager = keyManager;
+            this.networkManager = networkManager;
+            this.betweenServers = betweenServers;
+            this.received = received;
+        }
+
+        @Override
+        public void parseReceivedMessage(Message message, int receiverId) {
+            NodeRegistry sender = senders.get(message.getSender());
+            if (!ReliableLink.verifyMessage(message, sender, receiverId, keyManager)) {
+                return;
+            }
+            if (betweenServers) networkManager.heardFrom(sender);
+            handleMessage(message, sender);
+        }
+
+        @Override
+        public void handleMessage(Message message, NodeRegistry sender) {
+            switch (message.getType()) {
+                case ACK:
+                    networkManager.receiveAck(message, sender);
+                    break;
+                case HEARTBEAT:
+                    networkManager.receiveHeartbeat(message, sender);
+                    break;
+                case CONNECT:
+                    boolean firstTime = sender.addReceivedMessage(message.getId());
+                    if (firstTime && betweenServers) networkManager.createOneWaySession(message, sender);
+                    if (firstTime && !betweenServers) networkManager.createTwoWaySession(message, sender);
+                    if (sender.getSendSessionKey() != null) networkManager.acknowledgeMessage(message, sender);
+                    break;
+                case BUNDLE:
+                    networkManager.receiveBundle(message, sender, this);
+                    break;
+                case FRAGMENT:
+                    networkManager.receiveFragment(message, sender, this);
+                    break;
+                default:
+                    if (networkManager.receiveMessage(message, sender)) received.accept(message, sender);
+                    break;
+            }
+        }
+    }
+}
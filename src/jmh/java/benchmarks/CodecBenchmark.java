@@ -0,0 +1,69 @@
+package main.java.benchmarks;
+
+import main.java.common.Message;
+import main.java.common.MessageCodec;
+import main.java.common.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary and JSON wire formats (see {@link MessageCodec}): encoding a message with its authentication field,
+ * decoding it, and the bytes it takes on the wire (printed at the end of each run).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CodecBenchmark {
+    @Param({"binary", "json"})
+    private String format;
+
+    @Param({"64", "1024"})
+    private int contentSize; // characters of the content, e.g. a small consensus value or a block
+
+    private final byte[] hmac = new byte[32]; // HMAC-SHA256 of a node
+    private MessageCodec codec;
+    private Message message;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        codec = new MessageCodec("binary".equals(format));
+        char[] content = new char[contentSize];
+        Arrays.fill(content, 'a');
+        message = new Message(1L << 40, MessageType.WRITE, 1, new String(content), 42L, 7);
+        Arrays.fill(hmac, (byte) 0x5a);
+        encoded = codec.encode(message).withAuthentication(hmac);
+    }
+
+    @TearDown
+    public void reportWireBytes() {
+        System.out.printf("%n%s message with %d characters of content: %d bytes on the wire%n", format, contentSize, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(message).withAuthentication(hmac);
+    }
+
+    @Benchmark
+    public Message decode() {
+        return MessageCodec.decode(ByteBuffer.wrap(encoded));
+    }
+}
@@ -0,0 +1,85 @@
+package main.java.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import main.java.common.Message;
+import main.java.common.MessageType;
+import main.java.utils.JsonSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link JsonSerializer}, which shares one ObjectMapper and caches its readers and writers,
+ * with the new ObjectMapper per call it replaced, for a consensus message and for a list of messages (as in a bundle).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonBenchmark {
+    private static final TypeReference<List<Message>> MESSAGES = new TypeReference<>() {};
+
+    private Message message;
+    private List<Message> messages;
+    private String messageJson;
+    private String messagesJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        message = new Message(1L << 40, MessageType.WRITE, 1, "{\"transactions\":[\"0x5a5a5a5a5a5a5a5a\"],\"previousHash\":\"0x0\"}", 42L, 7);
+        message.setAuthenticationField(new byte[32]); // HMAC-SHA256 of a node
+        messages = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Message bundled = new Message((1L << 40) + i, MessageType.ACCEPT, 1, "value" + i, 42L, 7);
+            bundled.setAuthenticationField(new byte[0]); // bundled messages are authenticated by their bundle
+            messages.add(bundled);
+        }
+        messageJson = JsonSerializer.toJson(message);
+        messagesJson = JsonSerializer.toJson(messages);
+    }
+
+    @Benchmark
+    public String perCallMapperWrite() throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsString(message);
+    }
+
+    @Benchmark
+    public String sharedWrite() throws JsonProcessingException {
+        return JsonSerializer.toJson(message);
+    }
+
+    @Benchmark
+    public Message perCallMapperRead() throws JsonProcessingException {
+        return new ObjectMapper().readValue(messageJson, Message.class);
+    }
+
+    @Benchmark
+    public Message sharedRead() throws JsonProcessingException {
+        return JsonSerializer.fromJson(messageJson, Message.class);
+    }
+
+    @Benchmark
+    public List<Message> perCallMapperReadList() throws JsonProcessingException {
+        return new ObjectMapper().readValue(messagesJson, MESSAGES);
+    }
+
+    @Benchmark
+    public List<Message> sharedReadList() throws JsonProcessingException {
+        return JsonSerializer.fromJson(messagesJson, MESSAGES);
+    }
+}
@@ -0,0 +1,146 @@
+package main.java.benchmarks;
+
+import main.java.authenticated_reliable_links.ReceiveWindow;
+import main.java.authenticated_reliable_links.SendWindow;
+import main.java.common.Message;
+import main.java.common.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the lock-free send and receive windows of a node with the message maps of the baseline {@link BaselineRegistry},
+ * with several threads sending to and receiving from the same node while many messages are in flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WindowBenchmark {
+    @Param({"256", "16384"})
+    private int inFlight; // messages sent and not acknowledged
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final Message message = new Message(0, MessageType.WRITE, 1, "a");
+    private SendWindow sendWindow;
+    private ReceiveWindow receiveWindow;
+    private BaselineRegistry baselineRegistry;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        sendWindow = new SendWindow();
+        receiveWindow = new ReceiveWindow();
+        baselineRegistry = new BaselineRegistry();
+        nextId.set(inFlight);
+        for (long id = 0; id < inFlight; id++) {
+            sendWindow.add(id, 0);
+            baselineRegistry.addSentMessage(id, message);
+        }
+    }
+
+    /**
+     * Sends a message and acknowledges the oldest one in flight.
+     */
+    @Benchmark
+    public long lockFreeSend() {
+        long id = nextId.getAndIncrement();
+        sendWindow.add(id, 0);
+        return sendWindow.ack(id - inFlight, 0);
+    }
+
+    /**
+     * As the baseline did: the message is added, the oldest one marked as acknowledged,
+     * and the message checked by its retransmission loop.
+     */
+    @Benchmark
+    public boolean baselineSend() {
+        long id = nextId.getAndIncrement();
+        baselineRegistry.addSentMessage(id, message);
+        baselineRegistry.ackMessage(id - inFlight);
+        return baselineRegistry.checkAckedMessage(id);
+    }
+
+    /**
+     * Receives a message, out of order within the messages in flight, and then a duplicate of an older one.
+     */
+    @Benchmark
+    public boolean lockFreeReceive() {
+        long next = nextId.getAndIncrement();
+        if ((next & 1023) == 0) receiveWindow.cover(next - inFlight); // floor announced by the sender, as with its ACKs
+        long id = reordered(next);
+        return receiveWindow.markReceived(id) & receiveWindow.markReceived(id - inFlight / 2);
+    }
+
+    @Benchmark
+    public boolean baselineReceive() {
+        long id = reordered(nextId.getAndIncrement());
+        return baselineRegistry.addReceivedMessage(id, message) & baselineRegistry.addReceivedMessage(id - inFlight / 2, message);
+    }
+
+    /**
+     * Swaps ids within blocks of the messages in flight, as retransmissions and several paths reorder them.
+     */
+    private long reordered(long id) {
+        long block = id & -inFlight;
+        return block + ((id - block) * 7 & (inFlight - 1));
+    }
+
+    /**
+     * The tracking of the messages of a node in the baseline NodeRegistry, copied as it was (without its other fields):
+     * maps guarded by the lock of the node, never cleared, so they grow for the whole iteration as they did for the whole run.
+     * Messages no longer have the received flag it set, so each sent message is kept with its own.
+     */
+    private static class BaselineRegistry {
+        Map<Long, SentMessage> sentMessages = new HashMap<>();
+        Map<Long, Message> receivedMessages = new HashMap<>();
+
+        synchronized public void addSentMessage(long id, Message message) {
+            sentMessages.put(id, new SentMessage(message));
+        }
+
+        synchronized public boolean addReceivedMessage(long id, Message message) {
+            return receivedMessages.putIfAbsent(id, message) == null;
+        }
+
+        synchronized public void ackMessage(long id) {
+            SentMessage message = sentMessages.get(id);
+            if (message != null) {
+                message.received = true;
+            }
+        }
+
+        synchronized public boolean checkAckedMessage(long id) {
+            return sentMessages.get(id).received;
+        }
+    }
+
+    /**
+     * A sent message and whether it was acknowledged, as the baseline Message held it.
+     */
+    private static class SentMessage {
+        private final Message message;
+        private boolean received = false;
+
+        private SentMessage(Message message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package main.java.authenticated_reliable_links;
+
+import main.java.common.NodeRegistry;
+
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces the acknowledgments to the same node during a short window,
+ * so that a single ACK message (see {@link AckFrame}) acknowledges every message received meanwhile.
+ */
+public class AckAggregator {
+    private final Map<NodeRegistry, SortedSet<Long>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final long delayMicros;
+    private final BiConsumer<NodeRegistry, AckFrame> sender;
+
+    /**
+     * Constructor for the AckAggregator class.
+     *
+     * @param timer       the timer used to flush the acknowledgments
+     * @param delayMicros how long acknowledgments are held before being sent (0 sends them immediately)
+     * @param sender      sends a frame to the node
+     */
+    public AckAggregator(ScheduledExecutorService timer, long delayMicros, BiConsumer<NodeRegistry, AckFrame> sender) {
+        this.timer = timer;
+        this.delayMicros = delayMicros;
+        this.sender = sender;
+    }
+
+    /**
+     * Adds a received message to the next acknowledgment sent to the node.
+     *
+     * @param node the node that sent the message
+     * @param id   the id of the message to acknowledge
+     */
+    public void acknowledge(NodeRegistry node, long id) {
+        if (delayMicros <= 0) {
+            AckFrame.fromIds(new long[]{id}).forEach(frame -> sender.accept(node, frame));
+            return;
+        }
+
+        SortedSet<Long> ids = pending.computeIfAbsent(node, k -> new TreeSet<>());
+        boolean firstInWindow;
+        synchronized (ids) {
+            firstInWindow = ids.isEmpty();
+            ids.add(id);
+        }
+        if (firstInWindow) {
+            timer.schedule(() -> flush(node), delayMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Sends every pending acknowledgment to the node.
+     *
+     * @param node the node to send acknowledgments to
+     */
+    private void flush(NodeRegistry node) {
+        SortedSet<Long> ids = pending.get(node);
+        long[] toAck;
+        synchronized (ids) {
+            toAck = ids.stream().mapToLong(Long::longValue).toArray();
+            ids.clear();
+        }
+        AckFrame.fromIds(toAck).forEach(frame -> sender.accept(node, frame));
+    }
+}
@@ -0,0 +1,144 @@
+package main.java.authenticated_reliable_links;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Acknowledgment of several messages received from the same node, sent as the content of a single ACK message.
+ * Every id from base up to the cumulative high-water mark was received,
+ * and bit i of the selective-ack bitmap acknowledges id (cumulative + 1 + i).
+ * The frame also carries the floor of the node sending it: every message it sent to the receiver of the frame
+ * with a lower id was acknowledged, so the receiver can forget those ids (see {@link ReceiveWindow#cover}).
+ */
+@Getter
+public class AckFrame {
+    private static final Logger logger = LoggerFactory.getLogger(AckFrame.class);
+
+    private static final int MAX_SELECTIVE_WORDS = 4; // ids covered by the bitmap after the cumulative range = 64 * words
+    private static final long MAX_RANGE = 1 << 16;    // ids covered by the cumulative range of a single frame
+
+    private final long base;
+    private final long cumulative;
+    private final long[] selective;
+    private final long floor; // 0 if not announced
+
+    private AckFrame(long base, long cumulative, long[] selective, long floor) {
+        this.base = base;
+        this.cumulative = cumulative;
+        this.selective = selective;
+        this.floor = floor;
+    }
+
+    /**
+     * Builds the frames acknowledging the given ids.
+     *
+     * @param ids the ids to acknowledge, sorted in ascending order and without repetitions
+     * @return the frames acknowledging every id (usually a single one)
+     */
+    public static List<AckFrame> fromIds(long[] ids) {
+        List<AckFrame> frames = new ArrayList<>();
+        int i = 0;
+        while (i < ids.length) {
+            long base = ids[i];
+            long cumulative = base;
+            while (++i < ids.length && ids[i] == cumulative + 1 && cumulative - base + 1 < MAX_RANGE) {
+                cumulative = ids[i];
+            }
+
+            long[] selective = new long[MAX_SELECTIVE_WORDS];
+            int words = 0;
+            while (i < ids.length && ids[i] - cumulative - 1 < 64L * MAX_SELECTIVE_WORDS) {
+                long bit = ids[i] - cumulative - 1;
+                selective[(int) (bit / 64)] |= 1L << (bit % 64);
+                words = (int) (bit / 64) + 1;
+                i++;
+            }
+            frames.add(new AckFrame(base, cumulative, Arrays.copyOf(selective, words), 0));
+        }
+        return frames;
+    }
+
+    /**
+     * Retrieves the acknowledged ids from the content of an ACK message.
+     * ACK messages without content acknowledge only the message with the same id.
+     * Frames whose range is larger than any frame built by {@link #fromIds} are rejected.
+     *
+     * @param id      the id of the ACK message
+     * @param content the content of the ACK message
+     * @return the frame acknowledging the ids, or null if content is malformed
+     */
+    public static AckFrame fromContent(long id, String content) {
+        if (content == null || content.isBlank()) {
+            return new AckFrame(id, id, new long[0], 0);
+        }
+        try {
+            String[] parts = content.split(":", -1);
+            long base = Long.parseLong(parts[0]);
+            long cumulative = Long.parseLong(parts[1]);
+            long range = Math.subtractExact(cumulative, base);
+            if (range < 0 || range >= MAX_RANGE) {
+                logger.error("Invalid ACK range: {}", content);
+                return null;
+            }
+
+            String[] words = parts[2].isEmpty() ? new String[0] : parts[2].split(",");
+            if (words.length > MAX_SELECTIVE_WORDS) return null;
+            long[] selective = new long[words.length];
+            for (int i = 0; i < words.length; i++) {
+                selective[i] = Long.parseUnsignedLong(words[i], 16);
+            }
+            long floor = parts.length > 3 ? Long.parseLong(parts[3]) : 0;
+            return new AckFrame(base, cumulative, selective, floor);
+        } catch (RuntimeException e) {
+            logger.error("Malformed ACK content: {}", content);
+            return null;
+        }
+    }
+
+    /**
+     * Copies the frame with the floor of the node sending it.
+     *
+     * @param floor the floor of the sender of the frame
+     * @return the frame announcing the floor
+     */
+    public AckFrame withFloor(long floor) {
+        return new AckFrame(base, cumulative, selective, floor);
+    }
+
+    /**
+     * Converts the frame to the content of an ACK message: "base:cumulative:selective words:floor".
+     *
+     * @return the string representation of the frame
+     */
+    public String toContent() {
+        StringBuilder content = new StringBuilder().append(base).append(':').append(cumulative).append(':');
+        for (int i = 0; i < selective.length; i++) {
+            if (i > 0) content.append(',');
+            content.append(Long.toHexString(selective[i]));
+        }
+        return content.append(':').append(floor).toString();
+    }
+
+    /**
+     * Applies an action to every id acknowledged by the selective-ack bitmap.
+     * Ids of the cumulative range are walked by the receiver of the frame, among its pending messages.
+     *
+     * @param action the action to apply
+     */
+    public void forEachSelectiveId(LongConsumer action) {
+        for (int word = 0; word < selective.length; word++) {
+            long bits = selective[word];
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                action.accept(cumulative + 1 + 64L * word + bit);
+                bits &= bits - 1;
+            }
+        }
+    }
+}
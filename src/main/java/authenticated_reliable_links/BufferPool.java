@@ -0,0 +1,95 @@
+package main.java.authenticated_reliable_links;
+
+import main.java.common.ConfigLoader;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reusable buffers holding authenticated messages from their encoding until they are acknowledged,
+ * so that sending a message does not allocate a new array (direct buffers are handed to the socket without copies).
+ * Every pooled buffer fits the largest datagram; larger messages get a buffer of their own, which is never pooled.
+ */
+public class BufferPool {
+    public static final int BUFFER_SIZE = 65536; // larger than any UDP datagram
+    private static final int DEFAULT_POOL_SIZE = 1024;
+
+    private final boolean direct;
+    private final BlockingQueue<ByteBuffer> idle; // array backed, so releasing does not allocate
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+
+    /**
+     * Constructor for the BufferPool class.
+     *
+     * @param maxIdle the maximum number of buffers kept for reuse
+     * @param direct  if true the buffers are allocated off-heap
+     */
+    public BufferPool(int maxIdle, boolean direct) {
+        this.direct = direct;
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * Creates the buffer pool defined in the configuration file:
+     * BUFFER_POOL_SIZE (0 disables pooling) and BUFFER_POOL_DIRECT.
+     *
+     * @param config the configuration of this process
+     * @return the buffer pool, or null if pooling is disabled
+     */
+    public static BufferPool fromConfig(ConfigLoader config) {
+        int size = config.getIntProperty("BUFFER_POOL_SIZE", DEFAULT_POOL_SIZE);
+        if (size <= 0) return null;
+        return new BufferPool(size, !"false".equalsIgnoreCase(config.getStringProperty("BUFFER_POOL_DIRECT", "true")));
+    }
+
+    /**
+     * Takes a cleared buffer able to hold a message, allocating it if no buffer is idle.
+     *
+     * @param size the size of the message in bytes
+     * @return the buffer, to be given back with {@link #release} once the message is no longer needed
+     */
+    public ByteBuffer acquire(int size) {
+        acquired.incrementAndGet();
+        if (size > BUFFER_SIZE) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocate(size);
+        }
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            return direct ? ByteBuffer.allocateDirect(BUFFER_SIZE) : ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer taken from the pool, which must not be used afterwards.
+     * Buffers beyond the pool size (or too large) are left to the garbage collector.
+     *
+     * @param buffer the buffer to give back
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == BUFFER_SIZE && buffer.isDirect() == direct) {
+            idle.offer(buffer);
+        }
+    }
+
+    /**
+     * Retrieves the state of the pool.
+     *
+     * @return map with the buffers acquired and allocated since the start, and the idle ones
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new HashMap<>();
+        metrics.put("acquired", acquired.get());
+        metrics.put("allocated", allocated.get());
+        metrics.put("idle", (long) idle.size());
+        return metrics;
+    }
+}
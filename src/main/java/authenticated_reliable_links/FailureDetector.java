@@ -0,0 +1,89 @@
+package main.java.authenticated_reliable_links;
+
+import main.java.common.NodeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Suspects the nodes from which no authenticated message (of any type) was heard for a while.
+ * Every interval a HEARTBEAT is sent to each node, so that live nodes are always heard from even without traffic.
+ * Messages to suspected nodes are parked instead of being retransmitted (see {@link RetransmissionScheduler})
+ * or sent (see {@link OutboundQueue}), until the node is heard from again.
+ */
+public class FailureDetector {
+    private static final Logger logger = LoggerFactory.getLogger(FailureDetector.class);
+
+    private final ScheduledExecutorService timer;
+    private final long intervalMillis;
+    private final long timeoutNanos;
+    private final Consumer<NodeRegistry> heartbeat; // sends a HEARTBEAT to the node
+    private final Consumer<NodeRegistry> restored;  // sends the messages parked while the node was suspected
+
+    /**
+     * Constructor for the FailureDetector class.
+     *
+     * @param timer          the timer used to send heartbeats and check the nodes
+     * @param intervalMillis the time between heartbeats (0 disables the failure detector)
+     * @param timeoutMillis  how long a node is not heard from before being suspected
+     * @param heartbeat      sends a heartbeat to a node, without blocking
+     * @param restored       called when a suspected node is heard from again, without blocking
+     */
+    public FailureDetector(ScheduledExecutorService timer, long intervalMillis, long timeoutMillis,
+                           Consumer<NodeRegistry> heartbeat, Consumer<NodeRegistry> restored) {
+        this.timer = timer;
+        this.intervalMillis = intervalMillis;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.heartbeat = heartbeat;
+        this.restored = restored;
+    }
+
+    /**
+     * Starts monitoring the nodes, which are all considered alive for now.
+     *
+     * @param nodes the nodes to monitor
+     */
+    public void start(Collection<NodeRegistry> nodes) {
+        if (intervalMillis <= 0) return;
+        long now = System.nanoTime();
+        nodes.forEach(node -> node.setLastHeard(now));
+        timer.scheduleAtFixedRate(() -> nodes.forEach(this::check), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records an authenticated message received from a node, which is no longer suspected.
+     *
+     * @param node the node the message was received from
+     */
+    public void heard(NodeRegistry node) {
+        node.setLastHeard(System.nanoTime());
+        if (node.isSuspected()) restore(node);
+    }
+
+    /**
+     * Suspects the node if it was not heard from in time, and sends it a heartbeat.
+     */
+    private void check(NodeRegistry node) {
+        synchronized (this) {
+            if (!node.isSuspected() && System.nanoTime() - node.getLastHeard() > timeoutNanos) {
+                node.setSuspected(true);
+                logger.warn("Suspecting {}{}: nothing heard for {} ms", node.getType(), node.getId(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - node.getLastHeard()));
+            }
+        }
+        heartbeat.accept(node);
+    }
+
+    private void restore(NodeRegistry node) {
+        synchronized (this) {
+            if (!node.isSuspected()) return;
+            node.setSuspected(false);
+        }
+        logger.info("{}{} is alive again, sending its parked messages", node.getType(), node.getId());
+        restored.accept(node);
+    }
+}
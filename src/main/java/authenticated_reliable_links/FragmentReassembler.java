@@ -0,0 +1,199 @@
+package main.java.authenticated_reliable_links;
+
+import main.java.common.Message;
+import main.java.common.MessageCodec;
+import main.java.common.NetworkManager;
+import main.java.common.NodeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds messages too large for a single datagram from their FRAGMENT messages (see {@link ReliableLink}).
+ * Fragments are authenticated and acknowledged as any other message, and the rebuilt message is verified again.
+ * The partial messages of each node are bounded in bytes: fragments that do not fit the budget of their node are refused
+ * before being acknowledged, so the sender keeps retransmitting them, and acknowledged fragments are kept until their
+ * message completes, except as below.
+ * The oldest partial message of a node is always admitted, so that it completes and frees the budget
+ * (a node may exceed its budget by at most one message, which is never larger than {@link #MAX_MESSAGE_BYTES}).
+ * Partial messages are dropped once a fragment of a later incarnation of their node arrives (the node restarted and never
+ * sends their missing fragments), and when no fragment of theirs arrived for a while (see {@link #expire}).
+ */
+public class FragmentReassembler {
+    private static final Logger logger = LoggerFactory.getLogger(FragmentReassembler.class);
+
+    public static final int FRAGMENT_SIZE = 32768; // bytes of the message per fragment (before Base64)
+    public static final int MAX_FRAGMENTS = 512;   // fragments of a single message
+    public static final int MAX_MESSAGE_BYTES = FRAGMENT_SIZE * MAX_FRAGMENTS; // largest message sent or rebuilt (16 MB)
+
+    private final long maxBytesPerNode;
+    private final long timeoutNanos;
+    private final Map<NodeRegistry, LinkedHashMap<Long, Partial>> partials = new HashMap<>();
+    private final Map<NodeRegistry, Long> bufferedBytes = new HashMap<>();
+
+    /**
+     * Constructor for the FragmentReassembler class.
+     *
+     * @param maxBytesPerNode the maximum bytes of partial messages kept for each node
+     * @param timeoutSeconds  how long a partial message is kept without receiving any of its fragments (0 to keep it)
+     */
+    public FragmentReassembler(long maxBytesPerNode, int timeoutSeconds) {
+        this.maxBytesPerNode = maxBytesPerNode;
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    }
+
+    /**
+     * Builds the content of a FRAGMENT message: "originalId:index:count:base64 chunk".
+     *
+     * @param originalId the id of the fragmented message
+     * @param index      the position of the fragment
+     * @param count      the number of fragments of the message
+     * @param chunk      the bytes of the authenticated message carried by the fragment
+     * @return the content of the FRAGMENT message
+     */
+    public static String toContent(long originalId, int index, int count, byte[] chunk) {
+        return originalId + ":" + index + ":" + count + ":" + Base64.getEncoder().encodeToString(chunk);
+    }
+
+    /**
+     * Checks whether a received (and verified) fragment fits the budget of its node, before it is acknowledged.
+     * Fragments of the oldest partial message of the node, or of a node without partial messages, always fit.
+     * Malformed fragments are admitted, to be rejected by {@link #add}.
+     *
+     * @param sender   the node that sent the fragment
+     * @param fragment the FRAGMENT message
+     * @return true if the fragment can be acknowledged and added, false if it must be refused for now
+     */
+    synchronized public boolean hasRoom(NodeRegistry sender, Message fragment) {
+        LinkedHashMap<Long, Partial> nodePartials = partials.get(sender);
+        if (nodePartials == null || nodePartials.isEmpty()) return true;
+        String[] parts = fragment.getContent().split(":", 4);
+        if (parts.length < 4) return true;
+        try {
+            long originalId = Long.parseLong(parts[0]);
+            dropOlderIncarnations(sender, nodePartials, originalId);
+            if (nodePartials.isEmpty() || nodePartials.keySet().iterator().next() == originalId) return true;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        long chunkBytes = parts[3].length() / 4 * 3L; // upper bound of the decoded chunk
+        if (bufferedBytes.getOrDefault(sender, 0L) + chunkBytes <= maxBytesPerNode) return true;
+        logger.debug("Reassembly buffer full for {}{}, refused fragment {}", sender.getType(), sender.getId(), fragment.getId());
+        return false;
+    }
+
+    /**
+     * Adds a received (and verified) fragment, returning the original message once every fragment was received.
+     *
+     * @param sender   the node that sent the fragment
+     * @param fragment the FRAGMENT message
+     * @return the rebuilt message, or null if fragments are still missing or the fragment is malformed
+     */
+    synchronized public Message add(NodeRegistry sender, Message fragment) {
+        long originalId;
+        int index;
+        int count;
+        byte[] chunk;
+        try {
+            String[] parts = fragment.getContent().split(":", 4);
+            originalId = Long.parseLong(parts[0]);
+            index = Integer.parseInt(parts[1]);
+            count = Integer.parseInt(parts[2]);
+            chunk = Base64.getDecoder().decode(parts[3]);
+        } catch (RuntimeException e) {
+            logger.error("Malformed fragment {} from {}{}", fragment.getId(), sender.getType(), sender.getId());
+            return null;
+        }
+        if (count < 1 || count > MAX_FRAGMENTS || index < 0 || index >= count || chunk.length > FRAGMENT_SIZE) {
+            logger.error("Invalid fragment {}/{} of message {} from {}{}", index, count, originalId, sender.getType(), sender.getId());
+            return null;
+        }
+
+        LinkedHashMap<Long, Partial> nodePartials = partials.computeIfAbsent(sender, k -> new LinkedHashMap<>());
+        dropOlderIncarnations(sender, nodePartials, originalId);
+        Partial partial = nodePartials.computeIfAbsent(originalId, k -> new Partial(count));
+        if (partial.chunks.length != count || partial.chunks[index] != null) {
+            return null; // inconsistent or repeated fragment
+        }
+        partial.lastFragment = System.nanoTime();
+        partial.chunks[index] = chunk;
+        partial.received++;
+        partial.bytes += chunk.length;
+        bufferedBytes.merge(sender, (long) chunk.length, Long::sum);
+
+        if (partial.received == count) {
+            nodePartials.remove(originalId);
+            bufferedBytes.merge(sender, -partial.bytes, Long::sum);
+            return partial.rebuild();
+        }
+        return null;
+    }
+
+    /**
+     * Drops the partial messages that received no fragment during the timeout, which their node stopped sending
+     * (e.g. it restarted, or was removed). Called periodically.
+     */
+    synchronized public void expire() {
+        if (timeoutNanos <= 0) return;
+        long now = System.nanoTime();
+        for (Map.Entry<NodeRegistry, LinkedHashMap<Long, Partial>> entry : partials.entrySet()) {
+            Iterator<Map.Entry<Long, Partial>> iterator = entry.getValue().entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Partial> partial = iterator.next();
+                if (now - partial.getValue().lastFragment < timeoutNanos) continue;
+                drop(entry.getKey(), partial.getKey(), partial.getValue(), "timed out");
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops the partial messages of a node from incarnations before the one of a new fragment (see {@link NetworkManager#generateMessageId}).
+     */
+    private void dropOlderIncarnations(NodeRegistry sender, LinkedHashMap<Long, Partial> nodePartials, long originalId) {
+        long incarnation = originalId >>> NetworkManager.INCARNATION_SHIFT;
+        Iterator<Map.Entry<Long, Partial>> iterator = nodePartials.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Partial> partial = iterator.next();
+            if (partial.getKey() >>> NetworkManager.INCARNATION_SHIFT >= incarnation) continue;
+            drop(sender, partial.getKey(), partial.getValue(), "superseded by incarnation " + incarnation);
+            iterator.remove();
+        }
+    }
+
+    private void drop(NodeRegistry sender, long originalId, Partial partial, String reason) {
+        bufferedBytes.merge(sender, -partial.bytes, Long::sum);
+        logger.warn("Dropped partial message {} from {}{} ({}/{} fragments), {}", originalId, sender.getType(), sender.getId(),
+                partial.received, partial.chunks.length, reason);
+    }
+
+    /**
+     * Fragments received so far of a single message.
+     */
+    private static class Partial {
+        private final byte[][] chunks;
+        private int received = 0;
+        private long bytes = 0;
+        private long lastFragment = System.nanoTime(); // when the last fragment was added
+
+        private Partial(int count) {
+            this.chunks = new byte[count][];
+        }
+
+        private Message rebuild() {
+            ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+            for (byte[] chunk : chunks) {
+                buffer.put(chunk);
+            }
+            buffer.flip();
+            return MessageCodec.decode(buffer);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package main.java.authenticated_reliable_links;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import main.java.common.Message;
+import main.java.common.MessageCodec;
+import main.java.common.MessageType;
+import main.java.common.NodeRegistry;
+import main.java.utils.JsonSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Coalesces the messages to the same node during a short window into a single BUNDLE message,
+ * authenticated, acknowledged and retransmitted as a whole.
+ * Messages are bundled in the wire format of the node (see {@link MessageCodec#encodeBundled}): the content of a bundle is
+ * the Base64 of the concatenated binary frames, or the JSON array of the messages.
+ * A bundle is flushed when its content reaches about the size of a datagram that is not fragmented by IP (MTU),
+ * or when the window ends. CONNECT messages and messages larger than a bundle are never bundled.
+ */
+public class MessageBundler {
+    private static final Logger logger = LoggerFactory.getLogger(MessageBundler.class);
+    private static final TypeReference<List<Message>> MESSAGES = new TypeReference<>() {};
+
+    public static final int MAX_BUNDLE_SIZE = 1400; // bytes, below the usual MTU
+
+    private final Map<NodeRegistry, Bundle> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final long delayMicros;
+    private final int senderId;
+    private final MessageCodec codec;
+    private final LongSupplier idGenerator;
+    private final BiFunction<NodeRegistry, Message, CompletableFuture<Void>> sender;
+
+    /**
+     * Constructor for the MessageBundler class.
+     *
+     * @param timer       the timer used to flush the bundles
+     * @param delayMicros how long messages are held before being sent (0 disables bundling)
+     * @param senderId    the id of this node
+     * @param codec       the wire format of the bundled messages
+     * @param idGenerator generates the ids of the bundles
+     * @param sender      sends a bundle, or a message sent by itself, to the node, returning its delivery future
+     */
+    public MessageBundler(ScheduledExecutorService timer, long delayMicros, int senderId, MessageCodec codec, LongSupplier idGenerator,
+                          BiFunction<NodeRegistry, Message, CompletableFuture<Void>> sender) {
+        this.timer = timer;
+        this.delayMicros = delayMicros;
+        this.senderId = senderId;
+        this.codec = codec;
+        this.idGenerator = idGenerator;
+        this.sender = sender;
+    }
+
+    /**
+     * Serializes a message to be bundled, it can then be added to the bundles of several nodes.
+     *
+     * @param message the message to bundle
+     * @return the message serialized without authentication, or null if it cannot be bundled
+     */
+    public byte[] encode(Message message) {
+        if (delayMicros <= 0 || message.getType() == MessageType.CONNECT || message.getType() == MessageType.BUNDLE) {
+            return null;
+        }
+        byte[] encoded = codec.encodeBundled(message);
+        return encoded == null || contentSize(encoded.length, 1) >= MAX_BUNDLE_SIZE ? null : encoded;
+    }
+
+    /**
+     * Computes the bytes of the content of a bundle: Base64 of the binary frames, or JSON array of the messages.
+     *
+     * @param bytes the bytes of the serialized messages
+     * @param count the number of messages
+     * @return the size of the content in bytes
+     */
+    private int contentSize(int bytes, int count) {
+        return codec.isBinary() ? (bytes + 2) / 3 * 4 : bytes + count + 1; // commas and brackets
+    }
+
+    /**
+     * Adds a message to the next bundle sent to the node.
+     *
+     * @param node      the node to send the message to
+     * @param message   the message to send
+     * @param encoded   the message serialized by {@link #encode}
+     * @param delivered completed when the bundle carrying the message is acknowledged
+     */
+    public void add(NodeRegistry node, Message message, byte[] encoded, CompletableFuture<Void> delivered) {
+        Bundle bundle = pending.computeIfAbsent(node, k -> new Bundle());
+        Bundle full = null;
+        boolean firstInWindow;
+        synchronized (bundle) {
+            if (contentSize(bundle.bytes + encoded.length, bundle.messages.size() + 1) >= MAX_BUNDLE_SIZE) {
+                full = bundle.take();
+            }
+            firstInWindow = bundle.messages.isEmpty();
+            bundle.messages.add(message);
+            bundle.encoded.add(encoded);
+            bundle.delivered.add(delivered);
+            bundle.bytes += encoded.length;
+        }
+        if (full != null) {
+            send(node, full);
+        }
+        if (firstInWindow) {
+            timer.schedule(() -> flush(node), delayMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Sends the pending bundle to the node.
+     *
+     * @param node the node to send the bundle to
+     */
+    private void flush(NodeRegistry node) {
+        Bundle bundle = pending.get(node);
+        Bundle taken;
+        synchronized (bundle) {
+            taken = bundle.take();
+        }
+        send(node, taken);
+    }
+
+    /**
+     * Sends the messages taken from a bundle: a single message or only ACK messages (that are never acknowledged)
+     * are sent by themselves, otherwise as a BUNDLE message.
+     */
+    private void send(NodeRegistry node, Bundle bundle) {
+        boolean onlyAcks = bundle.messages.stream().allMatch(message -> message.getType() == MessageType.ACK);
+        if (bundle.messages.size() == 1 || onlyAcks) {
+            for (int i = 0; i < bundle.messages.size(); i++) {
+                ReliableLink.forward(sender.apply(node, bundle.messages.get(i)), bundle.delivered.get(i));
+            }
+            return;
+        }
+        Message message = new Message(idGenerator.getAsLong(), MessageType.BUNDLE, senderId, toContent(bundle));
+        logger.debug("Bundled {} messages to {}{} in message {}", bundle.messages.size(), node.getType(), node.getId(), message.getId());
+        CompletableFuture<Void> acked = sender.apply(node, message);
+        bundle.delivered.forEach(delivered -> ReliableLink.forward(acked, delivered));
+    }
+
+    /**
+     * Builds the content of a BUNDLE message: Base64 of the concatenated binary frames (self-delimiting),
+     * or JSON array of the messages.
+     */
+    private String toContent(Bundle bundle) {
+        ByteBuffer content = ByteBuffer.allocate(bundle.bytes + bundle.encoded.size() + 1);
+        if (!codec.isBinary()) content.put((byte) '[');
+        for (int i = 0; i < bundle.encoded.size(); i++) {
+            if (i > 0 && !codec.isBinary()) content.put((byte) ',');
+            content.put(bundle.encoded.get(i));
+        }
+        if (!codec.isBinary()) {
+            content.put((byte) ']');
+            return new String(content.array(), 0, content.position(), StandardCharsets.UTF_8);
+        }
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(content.array(), content.position()));
+    }
+
+    /**
+     * Retrieves the messages of a received (and verified) BUNDLE message, in either wire format.
+     * Only messages from the same sender as the bundle are kept, since they are not authenticated by themselves.
+     *
+     * @param bundle the BUNDLE message
+     * @return the bundled messages, empty if the bundle is malformed
+     */
+    public static List<Message> fromBundle(Message bundle) {
+        List<Message> messages = new ArrayList<>();
+        try {
+            for (Message message : decodeContent(bundle)) {
+                if (message.getSender() != bundle.getSender() || message.getType() == MessageType.CONNECT || message.getType() == MessageType.BUNDLE) {
+                    logger.error("Invalid message {} in bundle {} from {}", message.getId(), bundle.getId(), bundle.getSender());
+                    continue;
+                }
+                messages.add(message);
+            }
+        } catch (Exception e) {
+            logger.error("Malformed bundle {} from {}", bundle.getId(), bundle.getSender(), e);
+        }
+        return messages;
+    }
+
+    private static List<Message> decodeContent(Message bundle) throws Exception {
+        String content = bundle.getContent();
+        if (content.startsWith("[")) {
+            return JsonSerializer.fromJson(content, MESSAGES);
+        }
+        List<Message> messages = new ArrayList<>();
+        ByteBuffer frames = ByteBuffer.wrap(Base64.getDecoder().decode(content));
+        while (frames.hasRemaining()) {
+            if (frames.get(frames.position()) != MessageCodec.VERSION) {
+                throw new IllegalArgumentException("Not a binary frame at byte " + frames.position());
+            }
+            Message message = MessageCodec.decode(frames);
+            if (message == null) {
+                throw new IllegalArgumentException("Truncated frame at byte " + frames.position());
+            }
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * Messages waiting to be sent to a node.
+     */
+    private static class Bundle {
+        private List<Message> messages = new ArrayList<>();
+        private List<byte[]> encoded = new ArrayList<>();
+        private List<CompletableFuture<Void>> delivered = new ArrayList<>();
+        private int bytes = 0; // of the serialized messages
+
+        private Bundle take() {
+            Bundle taken = new Bundle();
+            taken.messages = messages;
+            taken.encoded = encoded;
+            taken.delivered = delivered;
+            taken.bytes = bytes;
+            messages = new ArrayList<>();
+            encoded = new ArrayList<>();
+            delivered = new ArrayList<>();
+            bytes = 0;
+            return taken;
+        }
+    }
+}
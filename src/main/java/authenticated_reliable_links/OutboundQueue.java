@@ -0,0 +1,239 @@
+package main.java.authenticated_reliable_links;
+
+import main.java.common.Message;
+import main.java.common.MessageType;
+import main.java.common.NodeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Queue of the messages to send to a node, limiting how many messages are in flight (released and not yet delivered).
+ * A message is sent right away while the window has credit; otherwise it waits in the queue until
+ * deliveries free the window. Each message holds its credit until its future completes, whether it is sent alone,
+ * in a bundle or in fragments, so the window is never exceeded.
+ * Client traffic (see {@link MessageType#isClientTraffic()}) is bounded by the capacity: when it is reached, its producers
+ * either block or have their message rejected. Producers never block in threads of the network layer (dispatched tasks,
+ * timer events, see {@link #runNonBlocking}), which would stop the processing of the deliveries that free the queue:
+ * their messages are rejected instead. The whole queue is bounded by a hard limit: when consensus messages reach it
+ * (e.g. while the node is suspected to be down), the queued messages of the oldest consensus instance are dropped,
+ * since the node catches up on later instances anyway, or the new message if there is no older instance.
+ * While the node is suspected to be down (see {@link FailureDetector}) the window has no credit, so messages wait in the queue.
+ */
+public class OutboundQueue {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundQueue.class);
+    private static final ThreadLocal<Boolean> NETWORK_THREAD = ThreadLocal.withInitial(() -> false); // must never block
+
+    private final NodeRegistry node;
+    private final int window;
+    private final int capacity;
+    private final int limit;
+    private final boolean block;
+    private final BiConsumer<Message, CompletableFuture<Void>> sender;
+
+    private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+    private int inFlight = 0; // released to be sent and not yet delivered
+    private long dropped = 0;
+    private long blocked = 0;
+    private long consensusDropped = 0;
+
+    /**
+     * Constructor for the OutboundQueue class.
+     *
+     * @param node     the node the messages are sent to
+     * @param window   the maximum number of messages in flight to the node
+     * @param capacity the maximum number of client messages waiting in the queue
+     * @param limit    the maximum number of messages of any kind waiting in the queue
+     * @param block    if true producers of client messages wait for space in a full queue, otherwise their messages are dropped
+     * @param sender   sends a message released from the queue, completing its future when delivered
+     */
+    public OutboundQueue(NodeRegistry node, int window, int capacity, int limit, boolean block, BiConsumer<Message, CompletableFuture<Void>> sender) {
+        this.node = node;
+        this.window = window;
+        this.capacity = capacity;
+        this.limit = Math.max(limit, capacity);
+        this.block = block;
+        this.sender = sender;
+    }
+
+    /**
+     * Takes a credit of the window to send a message right away, only if no messages are queued (to keep them in order).
+     * When successful the caller must send the message; the credit is released once it is delivered.
+     *
+     * @param delivered completed when the message is delivered (or given up)
+     * @return true if the message can be sent right away
+     */
+    public boolean tryAcquire(CompletableFuture<Void> delivered) {
+        synchronized (this) {
+            if (!queue.isEmpty() || !hasCredit()) return false;
+            inFlight++;
+        }
+        delivered.whenComplete((result, error) -> release());
+        return true;
+    }
+
+    /**
+     * Runs a task of the network layer (a dispatched task, a timer event), during which producers never block on a full queue.
+     *
+     * @param task the task to run in the current thread
+     */
+    public static void runNonBlocking(Runnable task) {
+        if (NETWORK_THREAD.get()) {
+            task.run();
+            return;
+        }
+        NETWORK_THREAD.set(true);
+        try {
+            task.run();
+        } finally {
+            NETWORK_THREAD.set(false);
+        }
+    }
+
+    /**
+     * Queues a message to be sent once the window has credit.
+     * Client messages are rejected (or wait, outside of the network layer) while the queue is full,
+     * other messages make room by dropping the oldest consensus instance once the queue reaches its limit.
+     *
+     * @param message   the message to send
+     * @param delivered completed when the message is delivered, or exceptionally if it is rejected or dropped
+     * @return false if the message was rejected because the queue is full
+     */
+    public boolean enqueue(Message message, CompletableFuture<Void> delivered) {
+        boolean bounded = message.getType().isClientTraffic();
+        List<Queued> evicted = List.of();
+        synchronized (this) {
+            while (bounded && queue.size() >= capacity) {
+                if (!block || NETWORK_THREAD.get()) {
+                    dropped++;
+                    logger.warn("Outbound queue to {}{} is full, dropped {} message {}", node.getType(), node.getId(), message.getType(), message.getId());
+                    delivered.completeExceptionally(new RejectedExecutionException("Outbound queue to " + node.getType() + node.getId() + " is full"));
+                    return false;
+                }
+                blocked++;
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped++;
+                    logger.error("Interrupted while waiting to send message {} to {}{}", message.getId(), node.getType(), node.getId());
+                    delivered.completeExceptionally(e);
+                    return false;
+                }
+            }
+            if (queue.size() >= limit) {
+                evicted = evictOldestInstance(message);
+                if (evicted == null) {
+                    consensusDropped++;
+                    logger.warn("Outbound queue to {}{} reached its limit, dropped {} message {}", node.getType(), node.getId(), message.getType(), message.getId());
+                    delivered.completeExceptionally(new RejectedExecutionException("Outbound queue to " + node.getType() + node.getId() + " reached its limit"));
+                    return false;
+                }
+            }
+            queue.add(new Queued(message, delivered));
+        }
+        evicted.forEach(queued -> queued.delivered.completeExceptionally(
+                new RejectedExecutionException("Dropped from the outbound queue to " + node.getType() + node.getId())));
+        drain();
+        return true;
+    }
+
+    /**
+     * Removes the queued messages of the oldest consensus instance, if it is older than the instance of the new message.
+     *
+     * @param message the message to make room for
+     * @return the removed messages, or null if no instance is older
+     */
+    private List<Queued> evictOldestInstance(Message message) {
+        long newest = message.getConsensusIdx() == null ? Long.MAX_VALUE : message.getConsensusIdx();
+        long oldest = Long.MAX_VALUE;
+        for (Queued queued : queue) {
+            Long consensusIdx = queued.message.getConsensusIdx();
+            if (consensusIdx != null && !queued.message.getType().isClientTraffic()) oldest = Math.min(oldest, consensusIdx);
+        }
+        if (oldest >= newest) return null;
+        List<Queued> evicted = new ArrayList<>();
+        for (Iterator<Queued> iterator = queue.iterator(); iterator.hasNext(); ) {
+            Queued queued = iterator.next();
+            Long consensusIdx = queued.message.getConsensusIdx();
+            if (consensusIdx != null && consensusIdx == oldest && !queued.message.getType().isClientTraffic()) {
+                evicted.add(queued);
+                iterator.remove();
+            }
+        }
+        consensusDropped += evicted.size();
+        logger.warn("Outbound queue to {}{} reached its limit, dropped {} messages of consensus instance {}",
+                node.getType(), node.getId(), evicted.size(), oldest);
+        return evicted;
+    }
+
+    /**
+     * Releases the credit of a delivered (or given up) message, sending the queued messages that now fit the window.
+     */
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    /**
+     * Sends the queued messages while the window has credit, called whenever messages are delivered
+     * and when a suspected node is heard from again.
+     */
+    public void drain() {
+        List<Queued> released = new ArrayList<>();
+        synchronized (this) {
+            while (!queue.isEmpty() && hasCredit()) {
+                released.add(queue.poll());
+                inFlight++;
+            }
+            if (!released.isEmpty()) notifyAll();
+        }
+        released.forEach(queued -> {
+            queued.delivered.whenComplete((result, error) -> release());
+            sender.accept(queued.message, queued.delivered);
+        });
+    }
+
+    private boolean hasCredit() {
+        return !node.isSuspected() && inFlight < window;
+    }
+
+    /**
+     * Retrieves the state of the queue.
+     *
+     * @return map with the queued, in flight, dropped (client), blocked (times a producer waited) and consensusDropped messages
+     */
+    synchronized public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new HashMap<>();
+        metrics.put("queued", (long) queue.size());
+        metrics.put("inFlight", (long) inFlight);
+        metrics.put("dropped", dropped);
+        metrics.put("blocked", blocked);
+        metrics.put("consensusDropped", consensusDropped);
+        return metrics;
+    }
+
+    /**
+     * A message waiting in the queue.
+     */
+    private static class Queued {
+        private final Message message;
+        private final CompletableFuture<Void> delivered;
+
+        private Queued(Message message, CompletableFuture<Void> delivered) {
+            this.message = message;
+            this.delivered = delivered;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package main.java.authenticated_reliable_links;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ids of the messages received from a node, used to detect duplicates.
+ * Every id below a floor is a duplicate. Above it, each id maps to a slot (id modulo the window size) holding the newest
+ * id received for it, and the ids replaced in their slot are kept in a set of bounded size: when it is full, the oldest
+ * one is forgotten and the floor raised past it. The sender also raises the floor (see {@link #cover}) to the id below
+ * which it never sends again. Ids above the floor that are in neither place are new, however old they are
+ * (e.g. retransmitted late after a backoff or while parked), so memory stays constant without ever accepting a replay.
+ * Lock-free: slots are updated with compare-and-set and evicted ids kept in a skip list, sorted so that the ids below
+ * the floor are forgotten without scanning the others, so concurrent receivers never block each other.
+ */
+public class ReceiveWindow {
+    private static final int SIZE = 1 << 15;       // slots, i.e. ids tracked without going through the set
+    private static final int MAX_EVICTED = SIZE;   // evicted ids kept before the oldest is forgotten
+
+    private final AtomicLongArray slots = new AtomicLongArray(SIZE); // id + 1, 0 while empty
+    private final ConcurrentSkipListSet<Long> evicted = new ConcurrentSkipListSet<>(); // received ids replaced in their slot by newer ones
+    private final AtomicInteger evictedCount = new AtomicInteger(); // size of the set, which the skip list counts in linear time
+    private final AtomicLong floor = new AtomicLong(); // ids below it are duplicates
+
+    /**
+     * Marks the id as received.
+     *
+     * @param id the id of the received message
+     * @return true if the id is being received for the first time
+     */
+    public boolean markReceived(long id) {
+        if (id < floor.get()) return false; // received, or forgotten and taken as received
+        int slot = (int) (id & (SIZE - 1));
+        long value = id + 1;
+        while (true) {
+            long current = slots.get(slot);
+            if (current == value) return false; // already received
+            if (current > value) return evict(id); // older than the id in its slot, known only if it was evicted
+            if (current != 0) evict(current - 1); // kept before leaving the slot, so it is never unknown meanwhile
+            if (slots.compareAndSet(slot, current, value)) return true;
+        }
+    }
+
+    /**
+     * Records the floor announced by the sender: every message it sent to this node with a lower id was acknowledged,
+     * so it is never sent again and its id can be forgotten.
+     *
+     * @param floor the floor announced by the sender (0 if none)
+     */
+    public void cover(long floor) {
+        forgetBelow(this.floor.accumulateAndGet(floor, Math::max));
+    }
+
+    /**
+     * Retrieves the floor, below which every id is a duplicate.
+     *
+     * @return the highest floor announced by the sender or reached by forgetting evicted ids
+     */
+    public long getFloor() {
+        return floor.get();
+    }
+
+    /**
+     * Keeps an id replaced in its slot, forgetting the oldest one if the set is full.
+     *
+     * @return true if the id was not kept yet
+     */
+    private boolean evict(long id) {
+        if (!evicted.add(id)) return false;
+        if (evictedCount.incrementAndGet() > MAX_EVICTED) {
+            Long oldest = evicted.ceiling(Long.MIN_VALUE);
+            if (oldest != null) cover(oldest + 1); // the floor is raised before the id is forgotten
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the evicted ids below the floor, which are duplicates anyway.
+     */
+    private void forgetBelow(long floor) {
+        for (Long lowest = evicted.ceiling(Long.MIN_VALUE); lowest != null && lowest < floor; lowest = evicted.ceiling(lowest)) {
+            if (evicted.remove(lowest)) evictedCount.decrementAndGet();
+        }
+    }
+}
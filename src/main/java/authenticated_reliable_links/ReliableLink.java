@@ -1,54 +1,45 @@
 package main.java.authenticated_reliable_links;
 
+import main.java.common.EncodedMessage;
 import main.java.common.KeyManager;
 import main.java.common.Message;
+import main.java.common.MessageCodec;
 import main.java.common.MessageType;
 import main.java.common.NodeRegistry;
+import main.java.transport.MulticastGroup;
+import main.java.transport.Transport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
 /**
- * Manages an authenticated communication link over UDP (simulating fair loss links),
+ * Manages an authenticated communication link over a transport (UDP simulating fair loss links by default),
  * ensuring reliable message delivery.
  */
 public class ReliableLink {
     private static final Logger logger = LoggerFactory.getLogger(ReliableLink.class);
 
-    private static final int BASE_BUFFER = 4096;
-    private static final int MAX_BUFFER = 65536;
-
     /**
-     * Receives a message from a UDP socket and converts the received data into a Message object.
+     * Converts the bytes held by the receiver buffer into a Message object, in either wire format (see {@link MessageCodec}).
      *
-     * @param udpSocket the UDP socket to receive the message from
-     * @return the received Message object
-     * @throws IOException if an error occurs during packet reception
+     * @param buffer the receiver buffer holding a whole message
+     * @return the received Message object, or null if the bytes are not a valid message
      */
-    public static Message receiveMessage(DatagramSocket udpSocket) throws IOException {
-        int bufferSize = BASE_BUFFER;
-        byte[] buffer = new byte[bufferSize];
-
-        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-        udpSocket.receive(packet);
-
-        Message message;
-        while ((message = Message.fromJson(new String(packet.getData(), 0, packet.getLength()), true)) == null
-                && bufferSize <= MAX_BUFFER) {
-            bufferSize += BASE_BUFFER;
-            buffer = new byte[bufferSize];
-            packet = new DatagramPacket(buffer, buffer.length);
-            udpSocket.receive(packet);
-        }
-
-        return message;
+    public static Message decodeMessage(ByteBuffer buffer) {
+        return MessageCodec.decode(buffer);
     }
 
     /**
@@ -78,51 +69,250 @@ public class ReliableLink {
     }
 
     /**
-     * Send message and wait for acknowledgment (except for ACK messages).
+     * Send message and schedule its retransmission until acknowledged (except for ACK and HEARTBEAT messages and reliable transports).
+     * Messages too large for a single datagram are split into FRAGMENT messages, each one sent as a message of its own.
+     *
+     * @param message     the message to send
+     * @param node        the node to send the message to
+     * @param km          required KeyManager to sign the message
+     * @param codec       the wire format of the messages
+     * @param transport   the transport used to send (and resend) the message
+     * @param scheduler   keeps retransmitting the message until it is acknowledged
+     * @param idGenerator generates the ids of the fragments
+     * @return the future completed when the message is acknowledged (or sent, if it needs no acknowledgment),
+     *         or completed exceptionally if it could not be sent
+     */
+    public static CompletableFuture<Void> sendMessage(Message message, NodeRegistry node, KeyManager km, MessageCodec codec,
+                                                      Transport transport, RetransmissionScheduler scheduler, LongSupplier idGenerator) {
+        EncodedMessage encoded = codec.encode(message);
+        if (encoded == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Message cannot be serialized"));
+        }
+        return transmit(message, encoded, node, km, codec, transport, scheduler, idGenerator);
+    }
+
+    /**
+     * Send the same message to several nodes (as {@link #sendMessage}), serializing it only once
+     * and computing only the authentication field for each node.
+     *
+     * @param message     the message to send
+     * @param nodes       the nodes to send the message to
+     * @param km          required KeyManager to sign the message
+     * @param codec       the wire format of the messages
+     * @param transport   the transport used to send (and resend) the message
+     * @param scheduler   keeps retransmitting the message until it is acknowledged
+     * @param idGenerator generates the ids of the fragments
+     * @return map from each node to the future completed when it acknowledges the message
+     */
+    public static Map<NodeRegistry, CompletableFuture<Void>> broadcastMessage(Message message, Collection<NodeRegistry> nodes, KeyManager km, MessageCodec codec,
+                                                                           Transport transport, RetransmissionScheduler scheduler, LongSupplier idGenerator) {
+        Map<NodeRegistry, CompletableFuture<Void>> futures = new HashMap<>();
+        EncodedMessage encoded = codec.encode(message);
+        for (NodeRegistry node : nodes) {
+            if (encoded == null) {
+                futures.put(node, CompletableFuture.failedFuture(new IllegalArgumentException("Message cannot be serialized")));
+                continue;
+            }
+            futures.put(node, transmit(message, encoded, node, km, codec, transport, scheduler, idGenerator));
+        }
+        return futures;
+    }
+
+    /**
+     * Send the same message to several nodes with a single datagram to a multicast group, authenticated with
+     * a vector of hmacs (one per node). Each node still acknowledges the message, and the nodes that do not
+     * are sent the same datagram by unicast on retransmission. Falls back to {@link #broadcastMessage}
+     * when the message is too large for a datagram.
      *
-     * @param message the message to send
-     * @param node    the node to send the message to
-     * @param km      required KeyManager to sign the message
+     * @param message     the message to send
+     * @param nodes       the nodes to send the message to, all members of the group
+     * @param km          required KeyManager to sign the message
+     * @param codec       the wire format of the messages
+     * @param group       the multicast group of the nodes
+     * @param transport   the transport used to resend the message
+     * @param scheduler   keeps retransmitting the message until it is acknowledged
+     * @param idGenerator generates the ids of the fragments
+     * @return map from each node to the future completed when it acknowledges the message
      */
-    public static void sendMessage(Message message, NodeRegistry node, KeyManager km) {
-        int relay = 0;
-        try (DatagramSocket udpSocket = new DatagramSocket()) {
-            InetAddress address = InetAddress.getByName(node.getIp());
-            byte[] messageBytes = km.authenticateMessage(message, node);
-            if (messageBytes == null) {
-                logger.error("Not sent given that session did not start: {} message to {}:{}", message.getType(), node.getIp(), node.getPort());
-                return;
+    public static Map<NodeRegistry, CompletableFuture<Void>> multicastMessage(Message message, Collection<NodeRegistry> nodes, KeyManager km, MessageCodec codec, MulticastGroup group,
+                                                                           Transport transport, RetransmissionScheduler scheduler, LongSupplier idGenerator) {
+        EncodedMessage encoded = codec.encode(message);
+        byte[] messageBytes;
+        try {
+            messageBytes = encoded == null ? null : km.authenticateMessage(message.getType(), encoded, nodes);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            logger.error("Failed to authenticate multicast message", e);
+            messageBytes = null;
+        }
+        if (messageBytes == null || messageBytes.length > Math.min(group.getMaxMessageSize(), transport.getMaxMessageSize())) {
+            return broadcastMessage(message, nodes, km, codec, transport, scheduler, idGenerator);
+        }
+
+        Map<NodeRegistry, CompletableFuture<Void>> futures = new HashMap<>();
+        List<NodeRegistry> unauthenticated = new ArrayList<>();
+        for (NodeRegistry node : nodes) {
+            if (node.getSendSessionKey() == null) {
+                unauthenticated.add(node); // fails as with unicast
+            } else {
+                futures.put(node, node.addSentMessage(message.getId()));
             }
+        }
+        futures.putAll(broadcastMessage(message, unauthenticated, km, codec, transport, scheduler, idGenerator));
 
-            DatagramPacket packet = new DatagramPacket(messageBytes, messageBytes.length, address, node.getPort());
+        try {
+            group.send(messageBytes);
+            logger.debug("Multicast {} message to {} nodes\nMessage: {}", message.getType(), nodes.size(), message);
+        } catch (IOException e) {
+            logger.error("Failed to multicast message {}", message.getId(), e);
+        }
+        for (NodeRegistry node : nodes) {
+            if (!unauthenticated.contains(node)) {
+                scheduler.schedule(message, node, transport, ByteBuffer.wrap(messageBytes), false, futures.get(node));
+            }
+        }
+        return futures;
+    }
 
-            // skip loop if ACK
-            if (message.getType().equals(MessageType.ACK)) {
-                udpSocket.send(packet);
-                logger.debug("Sent {} message to {}:{}", message.getType(), node.getIp(), node.getPort());
-                return;
+    /**
+     * Completes a future with the outcome of another one.
+     *
+     * @param source the future whose outcome is forwarded
+     * @param target the future to complete
+     */
+    public static void forward(CompletableFuture<Void> source, CompletableFuture<Void> target) {
+        source.whenComplete((result, error) -> {
+            if (error == null) {
+                target.complete(null);
+            } else {
+                target.completeExceptionally(error);
             }
+        });
+    }
+
+    /**
+     * Authenticates a serialized message for a node and sends it (see {@link #transmit(Message, byte[], NodeRegistry, KeyManager, Transport, RetransmissionScheduler, LongSupplier)}).
+     * Messages sent as a whole are written into a buffer of the scheduler's pool, if it has one,
+     * which goes back to the pool once the message is acknowledged (or sent, if it needs no acknowledgment).
+     *
+     * @param message     the message to send
+     * @param encoded     the serialized message
+     * @param node        the node to send the message to
+     * @param km          required KeyManager to sign the message
+     * @param codec       the wire format of the messages
+     * @param transport   the transport used to send (and resend) the message
+     * @param scheduler   keeps retransmitting the message until it is acknowledged
+     * @param idGenerator generates the ids of the fragments
+     * @return the future completed when the message is acknowledged (or sent, if it needs no acknowledgment)
+     */
+    private static CompletableFuture<Void> transmit(Message message, EncodedMessage encoded, NodeRegistry node, KeyManager km, MessageCodec codec,
+                                                    Transport transport, RetransmissionScheduler scheduler, LongSupplier idGenerator) {
+        byte[] authentication;
+        try {
+            authentication = km.authenticate(message.getType(), encoded, node);
+        } catch (NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
+            logger.error("Failed to authenticate message to {}:{}", node.getIp(), node.getPort(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+        BufferPool pool = scheduler.getBufferPool();
+        if (authentication == null || pool == null || encoded.getSize(authentication) > transport.getMaxMessageSize()) {
+            byte[] messageBytes = authentication == null ? null : encoded.withAuthentication(authentication);
+            return transmit(message, messageBytes, node, km, codec, transport, scheduler, idGenerator);
+        }
 
-            // ack are only added to received
-            node.addSentMessage(message.getId(), message);
+        ByteBuffer buffer = pool.acquire(encoded.getSize(authentication));
+        encoded.writeTo(buffer, authentication);
+        buffer.flip();
+        return send(message, buffer, true, node, transport, scheduler);
+    }
 
-            do {
-                udpSocket.send(packet);
-                logger.debug("Sent {} message to {}:{}\nMessage: {}", message.getType(), node.getIp(), node.getPort(), message);
+    /**
+     * Sends an authenticated message and schedules its retransmission until acknowledged (except for ACK and HEARTBEAT messages and reliable transports).
+     *
+     * @param message      the message to send
+     * @param messageBytes the authenticated message, null if the session with the node did not start
+     * @param node         the node to send the message to
+     * @param km           required KeyManager to sign the fragments
+     * @param codec        the wire format of the messages
+     * @param transport    the transport used to send (and resend) the message
+     * @param scheduler    keeps retransmitting the message until it is acknowledged
+     * @param idGenerator  generates the ids of the fragments
+     * @return the future completed when the message is acknowledged (or sent, if it needs no acknowledgment)
+     */
+    private static CompletableFuture<Void> transmit(Message message, byte[] messageBytes, NodeRegistry node, KeyManager km, MessageCodec codec,
+                                                    Transport transport, RetransmissionScheduler scheduler, LongSupplier idGenerator) {
+        if (messageBytes == null) {
+            logger.error("Not sent given that session did not start: {} message to {}:{}", message.getType(), node.getIp(), node.getPort());
+            return CompletableFuture.failedFuture(new IllegalStateException("Session with " + node.getType() + node.getId() + " did not start"));
+        }
 
-                try {
-                    relay++;
-                    Thread.sleep(200L * relay);
-                } catch (InterruptedException e) {
-                    logger.error("Wait interrupted: {}", e.getMessage());
-                    Thread.currentThread().interrupt();
-                }
-            } while (!node.checkAckedMessage(message.getId()));
+        if (messageBytes.length > transport.getMaxMessageSize()) {
+            return sendFragments(message, messageBytes, node, km, codec, transport, scheduler, idGenerator);
+        }
+        return send(message, ByteBuffer.wrap(messageBytes), false, node, transport, scheduler);
+    }
 
+    /**
+     * Sends an authenticated message that fits the transport, and schedules its retransmission until acknowledged.
+     *
+     * @param message      the message to send
+     * @param messageBytes the authenticated message
+     * @param pooled       if true the buffer is given back to the scheduler's pool once no longer needed
+     * @param node         the node to send the message to
+     * @param transport    the transport used to send (and resend) the message
+     * @param scheduler    keeps retransmitting the message until it is acknowledged
+     * @return the future completed when the message is acknowledged (or sent, if it needs no acknowledgment)
+     */
+    private static CompletableFuture<Void> send(Message message, ByteBuffer messageBytes, boolean pooled, NodeRegistry node,
+                                                Transport transport, RetransmissionScheduler scheduler) {
+        // ack and heartbeats are only added to received, and reliable transports need neither acks nor retransmissions
+        boolean retransmit = !transport.isReliable() && message.getType() != MessageType.ACK && message.getType() != MessageType.HEARTBEAT;
+        CompletableFuture<Void> acked = retransmit ? node.addSentMessage(message.getId()) : null;
+        IOException failure = null;
+        try {
+            transport.send(node, messageBytes);
+            logger.debug("Sent {} message to {}:{}\nMessage: {}", message.getType(), node.getIp(), node.getPort(), message);
         } catch (IOException e) {
             logger.error("Failed to send message to {}:{}", node.getIp(), node.getPort(), e);
-        } catch (NoSuchAlgorithmException | SignatureException | InvalidKeyException e) {
-            logger.error("Failed to authenticate message to {}:{}", node.getIp(), node.getPort(), e);
+            failure = e;
+        }
+
+        if (retransmit) {
+            scheduler.schedule(message, node, transport, messageBytes, pooled, acked);
+            return acked;
+        }
+        if (pooled) scheduler.getBufferPool().release(messageBytes);
+        return failure == null ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(failure);
+    }
+
+    /**
+     * Splits an authenticated message into FRAGMENT messages and sends them (see {@link FragmentReassembler}).
+     *
+     * @param message      the message to send
+     * @param messageBytes the authenticated message
+     * @param node         the node to send the message to
+     * @param km           required KeyManager to sign the fragments
+     * @param codec        the wire format of the messages
+     * @param transport    the transport used to send (and resend) the fragments
+     * @param scheduler    keeps retransmitting each fragment until it is acknowledged
+     * @param idGenerator  generates the ids of the fragments
+     * @return the future completed when every fragment is acknowledged
+     */
+    private static CompletableFuture<Void> sendFragments(Message message, byte[] messageBytes, NodeRegistry node, KeyManager km, MessageCodec codec,
+                                                         Transport transport, RetransmissionScheduler scheduler, LongSupplier idGenerator) {
+        int count = (messageBytes.length + FragmentReassembler.FRAGMENT_SIZE - 1) / FragmentReassembler.FRAGMENT_SIZE;
+        if (count > FragmentReassembler.MAX_FRAGMENTS) { // the receiver would never rebuild it
+            logger.error("Message {} is too large to be sent ({} bytes)", message.getId(), messageBytes.length);
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Message " + message.getId() + " is too large"));
+        }
+        logger.debug("Splitting {} message {} ({} bytes) in {} fragments", message.getType(), message.getId(), messageBytes.length, count);
+        CompletableFuture<?>[] fragments = new CompletableFuture<?>[count];
+        for (int index = 0; index < count; index++) {
+            int offset = index * FragmentReassembler.FRAGMENT_SIZE;
+            byte[] chunk = Arrays.copyOfRange(messageBytes, offset, Math.min(messageBytes.length, offset + FragmentReassembler.FRAGMENT_SIZE));
+            String content = FragmentReassembler.toContent(message.getId(), index, count, chunk);
+            Message fragment = new Message(idGenerator.getAsLong(), MessageType.FRAGMENT, message.getSender(), content);
+            fragments[index] = sendMessage(fragment, node, km, codec, transport, scheduler, idGenerator);
         }
+        return CompletableFuture.allOf(fragments);
     }
 }
@@ -0,0 +1,257 @@
+package main.java.authenticated_reliable_links;
+
+import lombok.Getter;
+import main.java.common.Message;
+import main.java.common.NodeRegistry;
+import main.java.transport.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of messages waiting for acknowledgment and retransmits them on timer events,
+ * instead of keeping one sleeping thread per outgoing message. The timer thread only decides when to retransmit:
+ * the messages are sent, and their buffers released, in other threads, so that a slow send never delays the other timers.
+ * The timer of a message is cancelled as soon as its acknowledgment completes the message's future.
+ * The first timeout is the node's RTO (see {@link RttEstimator}), doubled after each retransmission
+ * up to {@link RttEstimator#MAX_RTO}, with jitter so that messages lost together are not resent together.
+ * Messages to a node suspected to be down (see {@link FailureDetector}) are parked instead of retransmitted,
+ * and resent in order when the node is back. The park buffer of each node has a fixed capacity (fragments of a single
+ * message in flight may be many): when it is full, the oldest parked message is given up, failing its future.
+ */
+public class RetransmissionScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RetransmissionScheduler.class);
+
+    private final ScheduledExecutorService timer;
+    private final Executor sends;        // sends the retransmissions off the timer thread
+    @Getter
+    private final BufferPool bufferPool; // holds the messages until they are acknowledged (null if not pooled)
+    private final Map<NodeRegistry, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<NodeRegistry, ParkBuffer> parked = new ConcurrentHashMap<>();
+    private final int parkCapacity;
+
+    /**
+     * Constructor for the RetransmissionScheduler class.
+     *
+     * @param timer        the timer (single thread) used for every pending message
+     * @param sends        runs the retransmissions (e.g. a dispatcher)
+     * @param bufferPool   the pool of the buffers holding the messages, null to allocate them
+     * @param parkCapacity the maximum number of messages parked for each node
+     */
+    public RetransmissionScheduler(ScheduledExecutorService timer, Executor sends, BufferPool bufferPool, int parkCapacity) {
+        this.timer = timer;
+        this.sends = sends;
+        this.bufferPool = bufferPool;
+        this.parkCapacity = parkCapacity;
+    }
+
+    /**
+     * Keeps retransmitting an already sent message until it is acknowledged by the node.
+     *
+     * @param message      the message that was sent
+     * @param node         the node the message was sent to
+     * @param transport    the transport used to (re)send the message
+     * @param messageBytes the authenticated message to retransmit
+     * @param pooled       if true the buffer goes back to the pool once the message is acknowledged
+     * @param acked        the future completed when the message is acknowledged
+     */
+    public void schedule(Message message, NodeRegistry node, Transport transport, ByteBuffer messageBytes, boolean pooled, CompletableFuture<Void> acked) {
+        AtomicInteger count = inFlight.computeIfAbsent(node, k -> new AtomicInteger());
+        logger.debug("Pending ACK for message {} to {}{} ({} in flight)", message.getId(), node.getType(), node.getId(), count.incrementAndGet());
+        Retransmission retransmission = new Retransmission(message, node, transport, messageBytes, acked);
+        retransmission.reschedule();
+        acked.whenComplete((result, error) -> {
+            count.decrementAndGet();
+            retransmission.cancel();
+            if (pooled) retransmission.release();
+        });
+    }
+
+    /**
+     * Resends in order the messages parked while the node was suspected, and resumes their retransmission.
+     *
+     * @param node the node that is no longer suspected
+     */
+    public void resume(NodeRegistry node) {
+        timer.execute(() -> {
+            ParkBuffer buffer = parked.get(node);
+            if (buffer == null || buffer.messages.isEmpty()) return;
+            List<Retransmission> messages = new ArrayList<>(buffer.messages);
+            buffer.messages.clear();
+            buffer.size = 0;
+            logger.debug("Resending {} parked messages to {}{}", messages.size(), node.getType(), node.getId());
+            messages.sort(Comparator.comparingLong(retransmission -> retransmission.message.getId()));
+            List<Retransmission> due = new ArrayList<>();
+            for (Retransmission retransmission : messages) {
+                if (retransmission.resume()) due.add(retransmission);
+            }
+            sends.execute(() -> due.forEach(Retransmission::send)); // in order, in a single task
+        });
+    }
+
+    /**
+     * Retrieves the number of messages waiting for acknowledgment from a node.
+     *
+     * @param node the node to check
+     * @return the number of unacknowledged messages sent to the node
+     */
+    public int getInFlightCount(NodeRegistry node) {
+        AtomicInteger count = inFlight.get(node);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Retrieves the number of messages waiting for acknowledgment from each node.
+     *
+     * @return map from node name (e.g. "server1") to its number of unacknowledged messages
+     */
+    public Map<String, Integer> getInFlightCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        inFlight.forEach((node, count) -> counts.put(node.getType() + node.getId(), count.get()));
+        return counts;
+    }
+
+    /**
+     * Retrieves the state of the park buffer of a node.
+     *
+     * @param node the node to check
+     * @return map with the parked messages and the parkDropped ones (given up because the buffer was full)
+     */
+    public Map<String, Long> getParkMetrics(NodeRegistry node) {
+        ParkBuffer buffer = parked.get(node);
+        Map<String, Long> metrics = new HashMap<>();
+        metrics.put("parked", buffer == null ? 0L : buffer.size);
+        metrics.put("parkDropped", buffer == null ? 0L : buffer.dropped);
+        return metrics;
+    }
+
+    /**
+     * Messages parked for a node, in the order they were parked.
+     */
+    private static class ParkBuffer {
+        private final ArrayDeque<Retransmission> messages = new ArrayDeque<>(); // only used by the timer thread
+        private volatile long size = 0;
+        private volatile long dropped = 0;
+    }
+
+    /**
+     * Timer event for a single pending message.
+     */
+    private class Retransmission implements Runnable {
+        private final Message message;
+        private final NodeRegistry node;
+        private final Transport transport;
+        private final ByteBuffer messageBytes;
+        private final CompletableFuture<Void> acked;
+        private int relay = 0;
+        private long timeout;
+        private volatile ScheduledFuture<?> next;
+
+        private Retransmission(Message message, NodeRegistry node, Transport transport, ByteBuffer messageBytes, CompletableFuture<Void> acked) {
+            this.message = message;
+            this.node = node;
+            this.transport = transport;
+            this.messageBytes = messageBytes;
+            this.acked = acked;
+        }
+
+        private void reschedule() {
+            timeout = relay == 0 ? node.getRetransmissionTimeout() : Math.min(RttEstimator.MAX_RTO, timeout * 2);
+            relay++;
+            // equal jitter: wait between half and the whole timeout
+            long delay = timeout / 2 + ThreadLocalRandom.current().nextLong(timeout / 2 + 1);
+            next = timer.schedule(this, delay, TimeUnit.NANOSECONDS);
+        }
+
+        private void cancel() {
+            ScheduledFuture<?> scheduled = next;
+            if (scheduled != null) scheduled.cancel(false);
+        }
+
+        @Override
+        public void run() {
+            if (due()) {
+                sends.execute(this::send);
+                reschedule();
+            }
+        }
+
+        /**
+         * Checks in the timer thread whether the message must be resent now, parking it if the node is suspected.
+         */
+        private boolean due() {
+            if (acked.isDone()) return false;
+            if (node.isSuspected()) {
+                park();
+                return false;
+            }
+            return node.addRetransmission(message.getId());
+        }
+
+        /**
+         * Resends the message, unless it was acknowledged meanwhile (its buffer may then be reused).
+         */
+        synchronized private void send() {
+            if (acked.isDone()) return;
+            try {
+                transport.send(node, messageBytes.duplicate());
+                logger.debug("Resent {} message {} to {}:{} (attempt {}, timeout {} us)", message.getType(), message.getId(),
+                        node.getIp(), node.getPort(), relay, TimeUnit.NANOSECONDS.toMicros(timeout));
+            } catch (IOException e) {
+                logger.error("Failed to resend message to {}:{}", node.getIp(), node.getPort(), e);
+            }
+        }
+
+        /**
+         * Returns the buffer of the acknowledged message to the pool, once a resend running meanwhile is over.
+         */
+        synchronized private void release() {
+            bufferPool.release(messageBytes);
+        }
+
+        /**
+         * Parks the message until the node is heard from again, giving up the oldest parked message if the buffer is full.
+         */
+        private void park() {
+            ParkBuffer buffer = parked.computeIfAbsent(node, k -> new ParkBuffer());
+            if (buffer.messages.size() >= parkCapacity) {
+                Retransmission oldest = buffer.messages.poll();
+                buffer.dropped++;
+                logger.warn("Park buffer of {}{} is full, gave up {} message {}", node.getType(), node.getId(),
+                        oldest.message.getType(), oldest.message.getId());
+                oldest.acked.completeExceptionally(new RejectedExecutionException("Park buffer of " + node.getType() + node.getId() + " is full"));
+            }
+            buffer.messages.add(this);
+            buffer.size = buffer.messages.size();
+        }
+
+        /**
+         * Prepares a parked message to be resent right away, with a fresh timeout.
+         *
+         * @return true if the message must be resent
+         */
+        private boolean resume() {
+            relay = 0;
+            if (!due()) return false;
+            reschedule();
+            return true;
+        }
+    }
+}
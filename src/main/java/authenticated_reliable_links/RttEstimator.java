@@ -0,0 +1,54 @@
+package main.java.authenticated_reliable_links;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip time estimator for a node (Jacobson/Karels), used to compute the retransmission timeout (RTO).
+ * Keeps a smoothed RTT and its mean deviation, updated only with samples from messages sent once (Karn's rule).
+ * Samples are added under the estimator's own lock, while the RTO is read without locking.
+ */
+public class RttEstimator {
+    public static final long INITIAL_RTO = TimeUnit.MILLISECONDS.toNanos(200);
+    public static final long MIN_RTO = TimeUnit.MILLISECONDS.toNanos(5);
+    public static final long MAX_RTO = TimeUnit.SECONDS.toNanos(10);
+
+    private volatile long srtt = -1; // smoothed RTT (nanoseconds), negative until the first sample
+    private long rttvar = 0; // mean deviation of the RTT (nanoseconds)
+    private volatile long rto = INITIAL_RTO;
+
+    /**
+     * Updates the estimation with a new sample.
+     *
+     * @param sample the time between sending a message and receiving its ACK (nanoseconds)
+     */
+    synchronized public void addSample(long sample) {
+        if (sample < 0) return;
+        if (srtt < 0) {
+            srtt = sample;
+            rttvar = sample / 2;
+        } else {
+            long error = sample - srtt;
+            srtt += error / 8;
+            rttvar += (Math.abs(error) - rttvar) / 4;
+        }
+        rto = Math.min(MAX_RTO, Math.max(MIN_RTO, srtt + 4 * rttvar));
+    }
+
+    /**
+     * Retrieves the current retransmission timeout.
+     *
+     * @return the RTO in nanoseconds
+     */
+    public long getRto() {
+        return rto;
+    }
+
+    /**
+     * Retrieves the smoothed round-trip time.
+     *
+     * @return the smoothed RTT in nanoseconds, or -1 if there are no samples yet
+     */
+    public long getSmoothedRtt() {
+        return srtt;
+    }
+}
@@ -0,0 +1,146 @@
+package main.java.authenticated_reliable_links;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Ids of the messages sent to a node that were not acknowledged yet.
+ * Each id maps to a slot of a ring (id modulo its size), and ids whose slot is taken by another pending message
+ * go to an overflow map, so memory depends only on the messages in flight.
+ * Also keeps when each message was first sent and how many times, to take RTT samples,
+ * and the future completed when the message is acknowledged.
+ * Lock-free: slots are claimed and released with compare-and-set.
+ */
+public class SendWindow {
+    private static final int SIZE = 1024; // slots of the ring
+
+    private final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(SIZE);
+    private final Map<Long, Entry> overflow = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Adds a sent message waiting for acknowledgment.
+     *
+     * @param id  the id of the sent message
+     * @param now the time the message was sent (System.nanoTime())
+     * @return the future completed when the message is acknowledged
+     */
+    public CompletableFuture<Void> add(long id, long now) {
+        Entry entry = find(id);
+        if (entry != null) return entry.acked;
+        entry = new Entry(id, now);
+        if (ring.compareAndSet(slot(id), null, entry)) {
+            pending.incrementAndGet();
+            return entry.acked;
+        }
+        Entry previous = overflow.putIfAbsent(id, entry);
+        if (previous != null) return previous.acked;
+        pending.incrementAndGet();
+        return entry.acked;
+    }
+
+    /**
+     * Records a retransmission of a pending message.
+     *
+     * @param id the id of the sent message
+     * @return true if the message is still waiting for acknowledgment
+     */
+    public boolean retransmitted(long id) {
+        Entry entry = find(id);
+        if (entry == null) return false;
+        entry.transmissions.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Releases a message after being acknowledged, completing its future.
+     * Following Karn's rule, retransmitted messages give no RTT sample since the ACK is ambiguous.
+     *
+     * @param id  the id of the acknowledged message
+     * @param now the time the ACK was received (System.nanoTime())
+     * @return the RTT sample in nanoseconds, or -1 if there is no valid sample (not pending or retransmitted)
+     */
+    public long ack(long id, long now) {
+        int slot = slot(id);
+        Entry entry = ring.get(slot);
+        if (entry == null || entry.id != id || !ring.compareAndSet(slot, entry, null)) {
+            entry = overflow.remove(id);
+        }
+        if (entry == null) return -1;
+        pending.decrementAndGet();
+        long sample = entry.transmissions.get() == 1 ? now - entry.sentAt : -1;
+        entry.acked.complete(null);
+        return sample;
+    }
+
+    /**
+     * Check if the message is still waiting for acknowledgment.
+     *
+     * @param id the id of the sent message
+     * @return true if the message was sent and not acknowledged yet
+     */
+    public boolean isPending(long id) {
+        return find(id) != null;
+    }
+
+    /**
+     * Applies an action to every pending message with an id in the range, without visiting every id of a large range.
+     *
+     * @param from   the lowest id of the range
+     * @param to     the highest id of the range (inclusive)
+     * @param action the action to apply
+     */
+    public void forEachPending(long from, long to, LongConsumer action) {
+        long span = to - from;
+        if (span >= 0 && span < SIZE) {
+            for (long offset = 0; offset <= span; offset++) {
+                if (isPending(from + offset)) action.accept(from + offset);
+            }
+            return;
+        }
+        for (int slot = 0; slot < SIZE; slot++) {
+            Entry entry = ring.get(slot);
+            if (entry != null && entry.id >= from && entry.id <= to) action.accept(entry.id);
+        }
+        for (long id : overflow.keySet()) {
+            if (id >= from && id <= to) action.accept(id);
+        }
+    }
+
+    /**
+     * Retrieves the number of messages waiting for acknowledgment.
+     *
+     * @return the number of pending messages
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    private Entry find(long id) {
+        Entry entry = ring.get(slot(id));
+        return entry != null && entry.id == id ? entry : overflow.get(id);
+    }
+
+    private static int slot(long id) {
+        return (int) (id & (SIZE - 1));
+    }
+
+    /**
+     * A message waiting for acknowledgment.
+     */
+    private static class Entry {
+        private final long id;
+        private final long sentAt; // System.nanoTime() of the first transmission
+        private final AtomicInteger transmissions = new AtomicInteger(1);
+        private final CompletableFuture<Void> acked = new CompletableFuture<>();
+
+        private Entry(long id, long sentAt) {
+            this.id = id;
+            this.sentAt = sentAt;
+        }
+    }
+}
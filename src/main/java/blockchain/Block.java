@@ -4,9 +4,9 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.*;
 import main.java.utils.DataUtils;
+import main.java.utils.JsonSerializer;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.units.bigints.UInt256;
 import org.hyperledger.besu.datatypes.Address;
@@ -82,8 +82,7 @@ public class Block {
 
     public String toJson() {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(this);
+            return JsonSerializer.toJson(this);
         } catch (Exception e) {
             logger.error("Failed to convert block to JSON: ", e);
             return null;
@@ -92,8 +91,7 @@ public class Block {
 
     public static Block fromJson(String json) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, Block.class);
+            return JsonSerializer.fromJson(json, Block.class);
         } catch (Exception e) {
             logger.error("Failed to convert JSON to block: {}", json, e);
             return null;
@@ -207,9 +205,8 @@ public class Block {
     public void debugToFile(String path) {
         try {
             // Improve indentation
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(this.toJson());
-            String indentedJson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonNode);
+            JsonNode jsonNode = JsonSerializer.readTree(this.toJson());
+            String indentedJson = JsonSerializer.toPrettyJson(jsonNode);
 
             try (FileOutputStream fos = new FileOutputStream(path)) {
                 fos.write(indentedJson.getBytes());
@@ -1,9 +1,9 @@
 package main.java.blockchain;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import main.java.crypto_utils.RSAKeyReader;
 import main.java.utils.DataUtils;
+import main.java.utils.JsonSerializer;
 import org.apache.tuweni.bytes.Bytes;
 import org.hyperledger.besu.datatypes.Address;
 import org.hyperledger.besu.datatypes.Wei;
@@ -107,9 +107,8 @@ public class GenesisBlockGenerator {
         String jsonString = genesisBlock.toJson();
 
         // Improve indentation
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode jsonNode = objectMapper.readTree(jsonString);
-        String indentedJson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonNode);
+        JsonNode jsonNode = JsonSerializer.readTree(jsonString);
+        String indentedJson = JsonSerializer.toPrettyJson(jsonNode);
 
         // DEBUG: obtain world from genesis block json
         // Block.fromJson(indentedJson).debugState();
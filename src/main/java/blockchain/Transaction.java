@@ -4,11 +4,11 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.*;
 import main.java.common.KeyManager;
 import main.java.common.NodeRegistry;
 import main.java.utils.DataUtils;
+import main.java.utils.JsonSerializer;
 import org.hyperledger.besu.datatypes.Address;
 import org.hyperledger.besu.datatypes.Wei;
 import org.slf4j.Logger;
@@ -88,8 +88,7 @@ public class Transaction {
      */
     public String toJson() {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(this);
+            return JsonSerializer.toJson(this);
         } catch (JsonProcessingException e) {
             logger.error("Failed to convert transaction to JSON", e);
             return null;
@@ -101,8 +100,7 @@ public class Transaction {
      */
     public static Transaction fromJson(String json) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, Transaction.class);
+            return JsonSerializer.fromJson(json, Transaction.class);
         } catch (JsonProcessingException e) {
             logger.error("Failed to convert JSON to Transaction", e);
             return null;
@@ -4,8 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.*;
+import main.java.utils.JsonSerializer;
 import org.hyperledger.besu.datatypes.Address;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,8 +48,7 @@ public class TransactionResponse {
      */
     public String toJson() {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(this);
+            return JsonSerializer.toJson(this);
         } catch (JsonProcessingException e) {
             logger.error("Failed to convert transaction response to JSON", e);
             return null;
@@ -61,8 +60,7 @@ public class TransactionResponse {
      */
     public static TransactionResponse fromJson(String json) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, TransactionResponse.class);
+            return JsonSerializer.fromJson(json, TransactionResponse.class);
         } catch (JsonProcessingException e) {
             logger.error("Failed to convert JSON to TransactionResponse", e);
             return null;
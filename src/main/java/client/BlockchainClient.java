@@ -10,6 +10,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 
 import main.java.utils.Behavior;
 import main.java.utils.DataUtils;
@@ -29,6 +31,9 @@ import static java.lang.System.exit;
 public class BlockchainClient {
     private static final Logger logger = LoggerFactory.getLogger(BlockchainClient.class);
 
+    private static final int MAX_BUSY_RETRIES = 5;
+    private static final long INITIAL_BUSY_BACKOFF = 100; // milliseconds, doubled after each BUSY rejection
+
     private final Map<Integer, NodeRegistry> networkNodes = new HashMap<>();
     private final Map<Integer, NodeRegistry> networkClients = new HashMap<>();
 
@@ -41,6 +46,7 @@ public class BlockchainClient {
     private final KeyManager keyManager;
     private NetworkManager networkManager;
     private BlockchainConfirmationCollector collector;
+    private ConfigLoader config;
 
     /**
      * Constructor for the BlockchainClient class.
@@ -82,21 +88,49 @@ public class BlockchainClient {
 
         ConfigLoader.getProcessId();
 
+        launch(clientId, configFile, behavior).readCommands();
+    }
+
+    /**
+     * Creates a client and connects it to the network, without reading the command line,
+     * so that several clients (and servers) can run in the same JVM, e.g. communicating
+     * through the in-memory transport (TRANSPORT=memory). Commands are then given through {@link #processInput}.
+     *
+     * @param clientId   the unique identifier for the client
+     * @param configFile the configuration file
+     * @param behavior   the behavior of the client (for tests)
+     * @return the connected client
+     */
+    public static BlockchainClient launch(int clientId, String configFile, Behavior behavior) {
         BlockchainClient client = new BlockchainClient(clientId, behavior);
         client.loadConfig(configFile);
-        client.networkManager = new NetworkManager(client.id, client.keyManager);
+        client.networkManager = new NetworkManager(client.id, client.keyManager, client.config);
         client.collector = new BlockchainConfirmationCollector(client.networkNodes.size());
-        client.start();
+        client.connect();
+        return client;
     }
 
     /**
      * Starts the client to listen for command line input and connections from blockchain members.
      */
     public void start() {
+        connect();
+        readCommands();
+    }
+
+    /**
+     * Starts listening for connections from blockchain members and connects to them.
+     */
+    public void connect() {
         ServerMessageHandler serverMessageHandler = new ServerMessageHandler(this);
         logger.info("Connecting to the network...");
         networkManager.startClientCommunications(port, serverMessageHandler, networkNodes.values());
+    }
 
+    /**
+     * Reads and processes commands from the command line until "exit".
+     */
+    public void readCommands() {
         Scanner scanner = new Scanner(System.in);
 
         printWelcomeMessage();
@@ -124,7 +158,12 @@ public class BlockchainClient {
         }
     }
 
-    private void processInput(String input) {
+    /**
+     * Processes a command, as typed in the command line (e.g. "send_native ...").
+     *
+     * @param input the command
+     */
+    public void processInput(String input) {
         if (input == null || input.isBlank()) return;
         logger.debug("Received input: {}", input);
 
@@ -135,8 +174,8 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -148,8 +187,8 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending BALANCE_OF transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -161,8 +200,8 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending APPROVE transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -174,16 +213,16 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending TRANSFER_FROM transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
 
                 if (this.behavior == Behavior.REPLAY_ATTACK) {
                     // Simulate a replay attack by sending the same transaction again
                     logger.info("I am byzantine and I will send the same transaction again");
                     long messageId = networkManager.generateMessageId();
-                    networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(messageId, MessageType.CLIENT_WRITE, id, messageContent), node));
+                    networkManager.broadcastMessage(new Message(messageId, MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
                 }
 
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -195,8 +234,8 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending TOTAL_SUPPLY transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -208,8 +247,8 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending ALLOW transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -221,8 +260,8 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending ADD_TO_BLACKLIST transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -234,8 +273,8 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending IS_BLACKLISTED transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -247,8 +286,8 @@ public class BlockchainClient {
                 // Create and send a message to each node with different IDs
                 String messageContent = transaction.toJson();
                 logger.debug("Sending REMOVE_FROM_BLACKLIST transaction: \n {}", messageContent);
-                networkNodes.values().forEach(node -> networkManager.sendMessageThread(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), node));
-                TransactionResponse transactionResponse = collector.waitForConfirmation();
+                networkManager.broadcastMessage(new Message(transaction.getTransactionId(), MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+                TransactionResponse transactionResponse = waitForConfirmation(transaction.getTransactionId(), messageContent);
                 printTransactionResponse(transactionResponse);
             } catch (ParseException | IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -779,7 +818,7 @@ public class BlockchainClient {
      * Creates the NetworkManager.
      */
     public void loadConfig(String configFile) {
-        ConfigLoader config = new ConfigLoader(configFile);
+        this.config = new ConfigLoader(configFile);
 
         int numServers = config.getIntProperty("NUM_SERVERS");
         int numClients = config.getIntProperty("NUM_CLIENTS");
@@ -872,7 +911,44 @@ public class BlockchainClient {
         System.out.println("  help");
     }
 
+    /**
+     * Waits for the confirmation of a request. When the servers reply BUSY, backs off (exponentially, with jitter)
+     * and sends the request again in a new message, since the rejected one was already acknowledged.
+     *
+     * @param requestId      the id of the message carrying the request
+     * @param messageContent the request (transaction) to send again
+     * @return the confirmed response, or null if the servers stayed busy
+     */
+    private TransactionResponse waitForConfirmation(long requestId, String messageContent) {
+        long backoff = INITIAL_BUSY_BACKOFF;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return collector.waitForConfirmation(requestId);
+            } catch (RejectedExecutionException e) {
+                if (attempt == MAX_BUSY_RETRIES) {
+                    logger.warn("Servers are busy, giving up request {}", requestId);
+                    return null;
+                }
+                long delay = backoff + ThreadLocalRandom.current().nextLong(backoff);
+                logger.info("Servers are busy, sending request {} again in {} ms", requestId, delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                backoff *= 2;
+                requestId = networkManager.generateMessageId();
+                networkManager.broadcastMessage(new Message(requestId, MessageType.CLIENT_WRITE, id, messageContent), networkNodes.values());
+            }
+        }
+    }
+
     private void printTransactionResponse(TransactionResponse response) {
+        if (response == null) {
+            System.out.println("Error: the request was rejected, the servers are busy. Try again later.");
+            return;
+        }
         System.out.println("=============================================================");
         System.out.println("                   Transaction Response                      ");
         System.out.println("=============================================================");
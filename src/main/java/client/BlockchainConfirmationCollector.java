@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 @Getter
 public class BlockchainConfirmationCollector {
@@ -14,6 +15,7 @@ public class BlockchainConfirmationCollector {
     private Map<Integer, String> collectedValues = new HashMap<>();
     private final Set<String> collectedConfirmations = new HashSet<>();
     private final Map<Long, String> collectedTransactions = new HashMap<>();
+    private final Map<Long, Set<Integer>> busyReplies = new HashMap<>(); // servers that rejected each request
     private final int N; // total number of servers
     private final int F; // maximum faulty servers
 
@@ -32,14 +34,36 @@ public class BlockchainConfirmationCollector {
         }
     }
 
+    /**
+     * Collects a BUSY reply, whose content is the id of the rejected request message.
+     *
+     * @param message the BUSY message
+     */
+    synchronized public void collectBusy(Message message) {
+        try {
+            long requestId = Long.parseLong(message.getContent());
+            busyReplies.computeIfAbsent(requestId, k -> new HashSet<>()).add(message.getSender());
+            notify();
+        } catch (NumberFormatException e) {
+            logger.error("Malformed BUSY reply from server{}", message.getSender());
+        }
+    }
+
     /**
      * Waits for blockchain confirmation for the operation.
      *
+     * @param requestId the id of the message carrying the request
      * @return The timestamp of when decision was done
+     * @throws RejectedExecutionException if F + 1 servers replied BUSY to the request (so at least one correct server)
      */
-    synchronized public TransactionResponse waitForConfirmation() {
+    synchronized public TransactionResponse waitForConfirmation(long requestId) {
         TransactionResponse response;
         while ((response = condition()) == null) {
+            Set<Integer> busy = busyReplies.get(requestId);
+            if (busy != null && busy.size() >= F + 1) {
+                busyReplies.remove(requestId);
+                throw new RejectedExecutionException("Request " + requestId + " rejected by " + busy.size() + " busy servers");
+            }
             try {
                 wait(); // wait until condition is met
             } catch (Exception e) {
@@ -69,6 +93,7 @@ public class BlockchainConfirmationCollector {
             if (matches >= requiredCount) { // enough good results & reset to wait again
                 TransactionResponse response = TransactionResponse.fromJson(value);
                 collectedValues = new HashMap<>();
+                busyReplies.clear();
                 collectedConfirmations.add(response.getSignatureBase64());
                 collectedTransactions.put(response.getTransactionId(), value);
                 return response;
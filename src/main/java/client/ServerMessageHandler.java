@@ -32,13 +32,11 @@ public class ServerMessageHandler implements MessageHandler {
 
     @Override
     public void parseReceivedMessage(Message message, int receiverId) {
-        new Thread(() -> {
-            NodeRegistry sender = networkNodes.get(message.getSender());
-            if (!ReliableLink.verifyMessage(message, sender, receiverId, keyManager)) {
-                return;
-            }
-            handleMessage(message, sender);
-        }).start();
+        NodeRegistry sender = networkNodes.get(message.getSender());
+        if (!ReliableLink.verifyMessage(message, sender, receiverId, keyManager)) {
+            return;
+        }
+        handleMessage(message, sender);
     }
 
     @Override
@@ -47,20 +45,29 @@ public class ServerMessageHandler implements MessageHandler {
         boolean firstTime;
         switch (message.getType()) {
             case ACK:
-                sender.ackMessage(message.getId()); // do not add the message since it does not have unique id
+                networkManager.receiveAck(message, sender); // do not add the message since it does not have unique id
                 break;
             case CONNECT:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
+                firstTime = sender.addReceivedMessage(message.getId());
                 if (firstTime) networkManager.createTwoWaySession(message, sender);
                 if (sender.getSendSessionKey() != null) { // guarantee that session key is updated
                     networkManager.acknowledgeMessage(message, sender);
                 }
                 break;
             case DECISION:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
-                networkManager.acknowledgeMessage(message, sender);
+                firstTime = networkManager.receiveMessage(message, sender);
                 if (firstTime) confirmationCollector.collectConfirmation(message);
                 break;
+            case BUSY:
+                firstTime = networkManager.receiveMessage(message, sender);
+                if (firstTime) confirmationCollector.collectBusy(message);
+                break;
+            case BUNDLE:
+                networkManager.receiveBundle(message, sender, this); // its messages are neither deduplicated nor acknowledged
+                break;
+            case FRAGMENT:
+                networkManager.receiveFragment(message, sender, this); // the reassembled message is verified again
+                break;
             default:
                 logger.debug("Unknown message type: {}", message.getType());
                 break;
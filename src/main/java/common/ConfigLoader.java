@@ -57,6 +57,30 @@ public class ConfigLoader {
         return Integer.parseInt(config.getProperty(key));
     }
 
+    /**
+     * Get a string property from the configuration, or a default value if not defined.
+     *
+     * @param key          the property key
+     * @param defaultValue the value to use when the property is not defined
+     * @return the property value
+     */
+    public String getStringProperty(String key, String defaultValue) {
+        String value = config.getProperty(key);
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Get an integer property from the configuration, or a default value if not defined.
+     *
+     * @param key          the property key
+     * @param defaultValue the value to use when the property is not defined
+     * @return the property value as an integer
+     */
+    public int getIntProperty(String key, int defaultValue) {
+        String value = config.getProperty(key);
+        return (value == null || value.isBlank()) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
     /**
      * Get and print the id of the current process.
      */
@@ -0,0 +1,72 @@
+package main.java.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Runs message processing and message sending tasks off the receiving / calling thread.
+ * Replaces creating a new thread for every received or sent message.
+ */
+public interface Dispatcher {
+    int DEFAULT_THREADS = 2 * Runtime.getRuntime().availableProcessors();
+    int DEFAULT_QUEUE_SIZE = 4096;
+
+    /**
+     * Runs the task asynchronously.
+     *
+     * @param task the task to run
+     */
+    void dispatch(Runnable task);
+
+    /**
+     * Retrieves the current metrics of the dispatcher (e.g. queue depth, completed tasks).
+     *
+     * @return map from metric name to its value
+     */
+    Map<String, Long> getMetrics();
+
+    /**
+     * Creates the dispatcher defined in the configuration file:
+     * DISPATCH_MODE can be "pool" (default) or "virtual" (requires Java 21),
+     * DISPATCH_THREADS and DISPATCH_QUEUE_SIZE bound the "pool" mode.
+     *
+     * @param config the configuration of this process
+     * @param name   prefix for the names of the threads
+     * @return the dispatcher defined in the configuration
+     */
+    static Dispatcher fromConfig(ConfigLoader config, String name) {
+        return fromConfig(config, name, null);
+    }
+
+    /**
+     * Creates the dispatcher of a priority lane defined in the configuration file,
+     * bounded by DISPATCH_THREADS_&lt;LANE&gt; and DISPATCH_QUEUE_SIZE_&lt;LANE&gt; (e.g. DISPATCH_THREADS_HIGH)
+     * when set, otherwise by DISPATCH_THREADS and DISPATCH_QUEUE_SIZE.
+     *
+     * @param config the configuration of this process
+     * @param name   prefix for the names of the threads
+     * @param lane   the name of the lane (e.g. "high"), or null for a single dispatcher
+     * @return the dispatcher defined in the configuration
+     */
+    static Dispatcher fromConfig(ConfigLoader config, String name, String lane) {
+        int threads = config.getIntProperty("DISPATCH_THREADS", DEFAULT_THREADS);
+        int queueSize = config.getIntProperty("DISPATCH_QUEUE_SIZE", DEFAULT_QUEUE_SIZE);
+        if (lane != null) {
+            threads = config.getIntProperty("DISPATCH_THREADS_" + lane.toUpperCase(), threads);
+            queueSize = config.getIntProperty("DISPATCH_QUEUE_SIZE_" + lane.toUpperCase(), queueSize);
+            name = name + "-" + lane;
+        }
+        String mode = config.getStringProperty("DISPATCH_MODE", "pool");
+
+        if ("virtual".equalsIgnoreCase(mode)) {
+            if (VirtualThreadDispatcher.isSupported()) {
+                return new VirtualThreadDispatcher(name);
+            }
+            Logger logger = LoggerFactory.getLogger(Dispatcher.class);
+            logger.warn("Virtual threads are not supported by this JVM, using a pool of {} threads", threads);
+        }
+        return new PooledDispatcher(name, threads, queueSize);
+    }
+}
@@ -0,0 +1,120 @@
+package main.java.common;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * A message serialized once for every node it is sent to, leaving a slot for the per-node authentication field.
+ * Sending the same message to N nodes then costs a single serialization plus N HMACs.
+ * In JSON the field is Base64 encoded in the middle of the message, in binary frames (see {@link MessageCodec})
+ * it is written raw, after its length, at the end of the message.
+ */
+public class EncodedMessage {
+    private static final Logger logger = LoggerFactory.getLogger(EncodedMessage.class);
+
+    private static final String AUTHENTICATION_SLOT = "\"authenticationField\":\"\"";
+    private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[64]); // Base64 of the authentication
+
+    @Getter
+    private final byte[] propertiesToAuthenticate;
+    private final byte[] prefix; // JSON up to the value of the authentication field
+    private final byte[] suffix; // JSON after the value of the authentication field
+    private final boolean binary;
+
+    private EncodedMessage(byte[] propertiesToAuthenticate, byte[] prefix, byte[] suffix, boolean binary) {
+        this.propertiesToAuthenticate = propertiesToAuthenticate;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.binary = binary;
+    }
+
+    /**
+     * Serializes a message as a binary frame, without changing it.
+     *
+     * @param message the message to serialize
+     * @return the encoded message
+     */
+    public static EncodedMessage encodeBinary(Message message) {
+        return new EncodedMessage(message.getPropertiesToAuthenticate().getBytes(), MessageCodec.encodeUnauthenticated(message), new byte[0], true);
+    }
+
+    /**
+     * Serializes a message as JSON, without changing it.
+     *
+     * @param message the message to serialize
+     * @return the encoded message, or null if the message could not be converted to JSON
+     */
+    public static EncodedMessage encode(Message message) {
+        Message unauthenticated = new Message(message.getId(), message.getSender(), message.getType(), message.getContent(),
+                new byte[0], message.getConsensusIdx(), message.getEpochTS(), false);
+        String json = unauthenticated.toJson();
+        if (json == null) return null;
+
+        // quotes inside string values are escaped, so only the field itself can match
+        int slot = json.indexOf(AUTHENTICATION_SLOT);
+        if (slot < 0) {
+            logger.error("Missing authentication field in message: {}", json);
+            return null;
+        }
+        int valueEnd = slot + AUTHENTICATION_SLOT.length() - 1; // closing quote of the empty value
+        return new EncodedMessage(message.getPropertiesToAuthenticate().getBytes(),
+                json.substring(0, valueEnd).getBytes(StandardCharsets.UTF_8), json.substring(valueEnd).getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Builds the bytes sent to a node.
+     *
+     * @param authentication the hmac or signature for the node
+     * @return the serialized message with the authentication field
+     */
+    public byte[] withAuthentication(byte[] authentication) {
+        if (binary) {
+            ByteBuffer bytes = ByteBuffer.allocate(getSize(authentication));
+            writeTo(bytes, authentication);
+            return bytes.array();
+        }
+        byte[] value = Base64.getEncoder().encode(authentication);
+        byte[] bytes = new byte[prefix.length + value.length + suffix.length];
+        System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+        System.arraycopy(value, 0, bytes, prefix.length, value.length);
+        System.arraycopy(suffix, 0, bytes, prefix.length + value.length, suffix.length);
+        return bytes;
+    }
+
+    /**
+     * Computes the size of the bytes sent to a node.
+     *
+     * @param authentication the hmac or signature for the node
+     * @return the size of the message in bytes
+     */
+    public int getSize(byte[] authentication) {
+        if (binary) return prefix.length + Integer.BYTES + authentication.length;
+        return prefix.length + 4 * ((authentication.length + 2) / 3) + suffix.length;
+    }
+
+    /**
+     * Writes the bytes sent to a node into a buffer (see {@link #withAuthentication}), without allocating them.
+     *
+     * @param target         the buffer, with at least {@link #getSize} bytes remaining
+     * @param authentication the hmac or signature for the node
+     */
+    public void writeTo(ByteBuffer target, byte[] authentication) {
+        if (binary) {
+            target.put(prefix).putInt(authentication.length).put(authentication);
+            return;
+        }
+        int length = 4 * ((authentication.length + 2) / 3);
+        byte[] value = scratch.get();
+        if (value.length < length) {
+            value = new byte[length];
+            scratch.set(value);
+        }
+        Base64.getEncoder().encode(authentication, value);
+        target.put(prefix).put(value, 0, length).put(suffix);
+    }
+}
@@ -1,10 +1,13 @@
 package main.java.common;
 
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.SignatureException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 
 import lombok.Getter;
 import main.java.blockchain.Transaction;
@@ -26,7 +29,10 @@ public class KeyManager {
 
     @Getter
     private final int id;
+    @Getter
+    private final String directory; // holds the keys of this node (e.g. "server0")
     private PrivateKey privateKey;
+    private SecretKey sealingKey;   // derived from the private key, seals data kept on disk
 
     /**
      * Constructor for the KeyManager class.
@@ -37,8 +43,9 @@ public class KeyManager {
      */
     public KeyManager(int id, String type) {
         this.id = id;
+        this.directory = type + id;
         try {
-            this.privateKey = RSAKeyReader.readPrivateKey(type + id + "/" + "private.key");
+            this.privateKey = RSAKeyReader.readPrivateKey(directory + "/" + "private.key");
         } catch (Exception e) {
             logger.error("Failed to read key files", e);
         }
@@ -56,23 +63,91 @@ public class KeyManager {
      * @throws InvalidKeyException      if the key is invalid
      */
     public byte[] authenticateMessage(Message message, NodeRegistry node) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException {
-        int receiverId = node.getId();
-        byte[] messageBytes = message.getPropertiesToAuthenticate().getBytes();
+        EncodedMessage encoded = EncodedMessage.encode(message);
+        if (encoded == null) return null;
+        byte[] authentication = authenticate(message.getType(), encoded.getPropertiesToAuthenticate(), node);
+        if (authentication == null) return null;
 
-        byte[] authentication;
-        if (MessageType.CONNECT.equals(message.getType())) { // only CONNECT messages are signed
-            authentication = RSAAuthenticator.signMessage(privateKey, this.id, receiverId, messageBytes);
-        } else {
-            if (node.getSendSessionKey() == null) return null;
-            authentication = AESAuthenticator.generateHmac(node.getSendSessionKey(), this.id, receiverId, messageBytes);
+        message.setAuthenticationField(authentication);
+        return encoded.withAuthentication(authentication);
+    }
+
+    /**
+     * Authenticates a message already serialized for several nodes (see {@link EncodedMessage}),
+     * without serializing it again.
+     *
+     * @param type    the type of the message
+     * @param encoded the serialized message
+     * @param node    the node to send the message to
+     * @return the authenticated / signed message as a byte array, or null if the session did not start
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     * @throws SignatureException       if an error occurs during signing
+     * @throws InvalidKeyException      if the key is invalid
+     */
+    public byte[] authenticateMessage(MessageType type, EncodedMessage encoded, NodeRegistry node) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        byte[] authentication = authenticate(type, encoded.getPropertiesToAuthenticate(), node);
+        return authentication == null ? null : encoded.withAuthentication(authentication);
+    }
+
+    /**
+     * Computes the authentication field of a serialized message for a node,
+     * to be written along with the message (see {@link EncodedMessage#writeTo}).
+     *
+     * @param type    the type of the message
+     * @param encoded the serialized message
+     * @param node    the node to send the message to
+     * @return the hmac or signature, or null if the session did not start
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     * @throws SignatureException       if an error occurs during signing
+     * @throws InvalidKeyException      if the key is invalid
+     */
+    public byte[] authenticate(MessageType type, EncodedMessage encoded, NodeRegistry node) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        return authenticate(type, encoded.getPropertiesToAuthenticate(), node);
+    }
+
+    /**
+     * Authenticates a message once for several nodes, as when it is multicast: the authentication field
+     * is a vector with the hmac of every node at the position of its ID (see {@link #verifyMessage}).
+     * Nodes whose session did not start are left out, so they must be sent the message separately.
+     *
+     * @param type    the type of the message, not CONNECT
+     * @param encoded the serialized message
+     * @param nodes   the nodes to send the message to
+     * @return the authenticated message as a byte array, or null if no session started
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     * @throws InvalidKeyException      if the key is invalid
+     */
+    public byte[] authenticateMessage(MessageType type, EncodedMessage encoded, Collection<NodeRegistry> nodes) throws NoSuchAlgorithmException, InvalidKeyException {
+        int maxId = nodes.stream().mapToInt(NodeRegistry::getId).max().orElse(-1);
+        byte[] vector = new byte[(maxId + 1) * AESAuthenticator.HMAC_SIZE];
+        byte[] messageBytes = encoded.getPropertiesToAuthenticate();
+        boolean authenticated = false;
+        for (NodeRegistry node : nodes) {
+            if (node.getSendSessionKey() == null) continue;
+            byte[] hmac = AESAuthenticator.generateHmac(node.getSendSessionKey(), this.id, node.getId(), messageBytes);
+            System.arraycopy(hmac, 0, vector, node.getId() * AESAuthenticator.HMAC_SIZE, AESAuthenticator.HMAC_SIZE);
+            authenticated = true;
         }
+        return authenticated ? encoded.withAuthentication(vector) : null;
+    }
 
-        message.setAuthenticationField(authentication);
-        return message.toJson().getBytes();
+    /**
+     * Computes the hmac (or signature for CONNECT messages) of the properties of a message.
+     *
+     * @return the hmac or signature, or null if the session did not start
+     */
+    private byte[] authenticate(MessageType type, byte[] messageBytes, NodeRegistry node) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        int receiverId = node.getId();
+        if (MessageType.CONNECT.equals(type)) { // only CONNECT messages are signed
+            return RSAAuthenticator.signMessage(privateKey, this.id, receiverId, messageBytes);
+        }
+        if (node.getSendSessionKey() == null) return null;
+        return AESAuthenticator.generateHmac(node.getSendSessionKey(), this.id, receiverId, messageBytes);
     }
 
     /**
      * Verifies the authenticity of a message.
+     * A message authenticated for several nodes carries a vector of hmacs, of which only the receiver's is verified.
      *
      * @param message    the message to verify
      * @param senderNode the node that sent the message
@@ -90,6 +165,11 @@ public class KeyManager {
         if (MessageType.CONNECT.equals(message.getType())) { // only CONNECT messages are signed
             return RSAAuthenticator.verifySignature(senderNode.getPublicKey(), senderId, receiverId, messageBytes, authenticationField);
         }
+        if (authenticationField != null && authenticationField.length != AESAuthenticator.HMAC_SIZE) { // hmac vector
+            int from = receiverId * AESAuthenticator.HMAC_SIZE;
+            if (from < 0 || from + AESAuthenticator.HMAC_SIZE > authenticationField.length) return false;
+            authenticationField = Arrays.copyOfRange(authenticationField, from, from + AESAuthenticator.HMAC_SIZE);
+        }
         return AESAuthenticator.verifyHmac(senderNode.getRecvSessionKey(), senderId, receiverId, messageBytes, authenticationField);
     }
 
@@ -206,4 +286,34 @@ public class KeyManager {
         byte[] encryptedKey = Base64.getDecoder().decode(message.getContent());
         return RSAKeyProtector.decryptSecretKey(privateKey, encryptedKey);
     }
+
+    /**
+     * Encrypts and authenticates data to be kept on disk, with a key derived from the private key,
+     * so that only this node can read it back.
+     *
+     * @param data the data to seal
+     * @return the sealed data
+     * @throws GeneralSecurityException if the data cannot be sealed
+     */
+    public byte[] seal(byte[] data) throws GeneralSecurityException {
+        return AESSealer.seal(getSealingKey(), data);
+    }
+
+    /**
+     * Retrieves data sealed by this node.
+     *
+     * @param sealed the sealed data
+     * @return the original data
+     * @throws GeneralSecurityException if the data was not sealed by this node or was modified
+     */
+    public byte[] unseal(byte[] sealed) throws GeneralSecurityException {
+        return AESSealer.unseal(getSealingKey(), sealed);
+    }
+
+    synchronized private SecretKey getSealingKey() throws GeneralSecurityException {
+        if (sealingKey == null) {
+            sealingKey = AESSealer.deriveKey(privateKey.getEncoded(), "session-seal");
+        }
+        return sealingKey;
+    }
 }
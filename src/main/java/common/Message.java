@@ -1,15 +1,18 @@
 package main.java.common;
 import com.fasterxml.jackson.annotation.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import main.java.utils.JsonSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Base64;
 
 /**
@@ -27,8 +30,6 @@ public class Message {
     private int sender;
     private MessageType type;
     private String content;
-    @JsonIgnore
-    private boolean received = false;
 
     @JsonIgnore
     @ToString.Exclude
@@ -39,6 +40,10 @@ public class Message {
     @JsonInclude(JsonInclude.Include.NON_NULL)
     private Integer epochTS = null;
 
+    @JsonIgnore
+    @ToString.Exclude
+    private transient boolean bundled; // extracted from a BUNDLE, deduplicated and acknowledged with it (never on the wire)
+
     /**
      * Constructor for the Message class.
      *
@@ -104,11 +109,7 @@ public class Message {
     public String toJson() {
         String json = null;
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            json = objectMapper.writeValueAsString(this);
-            if (json != null) {
-                objectMapper.readValue(json, Message.class);
-            }
+            json = JsonSerializer.toJson(this);
             return json;
         } catch (Exception e) {
             logger.error("Failed to convert message to JSON: {}", json, e);
@@ -124,20 +125,24 @@ public class Message {
      */
     public static Message fromJson(String json) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, Message.class);
+            return JsonSerializer.fromJson(json, Message.class);
         } catch (Exception e) {
             logger.error("Failed to convert JSON to message: {}", json, e);
             return null;
         }
     }
 
-    public static Message fromJson(String json, boolean ignoreError) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, Message.class);
+    /**
+     * Creates a Message object from the JSON bytes held by a buffer, without copying them to an array.
+     *
+     * @param buffer the buffer holding the JSON representation of the message
+     * @return the Message object, or null if the buffer does not hold a valid message
+     */
+    public static Message fromJson(ByteBuffer buffer) {
+        try (InputStream input = new ByteBufferBackedInputStream(buffer)) {
+            return JsonSerializer.fromJson(input, Message.class);
         } catch (Exception e) {
-            //logger.error("Failed to convert JSON to message: {}", json, e);
+            logger.error("Failed to convert received datagram to message", e);
             return null;
         }
     }
@@ -0,0 +1,165 @@
+package main.java.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format of the messages sent between nodes, "binary" (default) or "json" (readable, for debugging).
+ * A binary message is a versioned frame:
+ * version (1 byte), id (8), sender (4), type (1), flags (1), consensusIdx (8) and epochTS (4) when present,
+ * content length (4, -1 if null) and UTF-8 content, authentication field length (4) and raw bytes.
+ * Every node decodes both formats (JSON messages start with '{'), so the format can differ between nodes.
+ */
+public class MessageCodec {
+    private static final Logger logger = LoggerFactory.getLogger(MessageCodec.class);
+
+    public static final byte VERSION = 1;
+    private static final byte JSON_START = '{';
+    private static final byte HAS_CONSENSUS = 1; // flag set when consensusIdx and epochTS are present
+    private static final int HEADER_SIZE = 1 + Long.BYTES + Integer.BYTES + 1 + 1 + Integer.BYTES; // without consensus fields
+    private static final int CONSENSUS_SIZE = Long.BYTES + Integer.BYTES;
+    private static final MessageType[] TYPES = MessageType.values();
+
+    private final boolean binary;
+
+    /**
+     * Constructor for the MessageCodec class.
+     *
+     * @param binary if true messages are sent as binary frames, otherwise as JSON
+     */
+    public MessageCodec(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Creates the codec defined in the configuration file: WIRE_FORMAT can be "binary" (default) or "json".
+     *
+     * @param config the configuration of this process
+     * @return the codec defined in the configuration
+     */
+    public static MessageCodec fromConfig(ConfigLoader config) {
+        return new MessageCodec(!"json".equalsIgnoreCase(config.getStringProperty("WIRE_FORMAT", "binary")));
+    }
+
+    /**
+     * Serializes a message in the wire format of this codec, to be authenticated for each node it is sent to.
+     *
+     * @param message the message to serialize
+     * @return the encoded message, or null if the message could not be serialized
+     */
+    public EncodedMessage encode(Message message) {
+        return binary ? EncodedMessage.encodeBinary(message) : EncodedMessage.encode(message);
+    }
+
+    /**
+     * Check if messages are sent as binary frames.
+     *
+     * @return true for the binary format, false for JSON
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Serializes a message to be carried inside a BUNDLE message (see {@link main.java.authenticated_reliable_links.MessageBundler}), without authentication:
+     * a binary frame with an empty authentication field, or JSON without the authentication field value.
+     *
+     * @param message the message to serialize
+     * @return the serialized message, or null if the message could not be serialized
+     */
+    public byte[] encodeBundled(Message message) {
+        Message unauthenticated = new Message(message.getId(), message.getSender(), message.getType(), message.getContent(),
+                new byte[0], message.getConsensusIdx(), message.getEpochTS(), false);
+        if (binary) {
+            byte[] frame = encodeUnauthenticated(unauthenticated);
+            return ByteBuffer.allocate(frame.length + Integer.BYTES).put(frame).putInt(0).array();
+        }
+        String json = unauthenticated.toJson();
+        return json == null ? null : json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts the bytes held by a buffer into a Message object, in either wire format.
+     *
+     * @param buffer the buffer holding a whole message
+     * @return the Message object, or null if the bytes are not a valid message
+     */
+    public static Message decode(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) return null;
+        byte version = buffer.get(buffer.position());
+        if (version == JSON_START) {
+            return Message.fromJson(buffer);
+        }
+        if (version != VERSION) {
+            logger.error("Unknown wire format version {}, dropped message", version);
+            return null;
+        }
+        try {
+            buffer.get(); // version
+            Message message = new Message();
+            message.setId(buffer.getLong());
+            message.setSender(buffer.getInt());
+            message.setType(TYPES[buffer.get()]);
+            byte flags = buffer.get();
+            if ((flags & HAS_CONSENSUS) != 0) {
+                message.setConsensusIdx(buffer.getLong());
+                message.setEpochTS(buffer.getInt());
+            }
+            message.setContent(getString(buffer));
+            byte[] authenticationField = new byte[checkLength(buffer, buffer.getInt())];
+            buffer.get(authenticationField);
+            message.setAuthenticationField(authenticationField);
+            return message;
+        } catch (RuntimeException e) { // truncated frame, unknown type or invalid length
+            logger.error("Failed to decode received message", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a message, up to its authentication field, as a binary frame.
+     *
+     * @param message the message to write
+     * @return the frame without the authentication field
+     */
+    static byte[] encodeUnauthenticated(Message message) {
+        byte[] content = message.getContent() == null ? null : message.getContent().getBytes(StandardCharsets.UTF_8);
+        boolean hasConsensus = message.getConsensusIdx() != null && message.getEpochTS() != null;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (hasConsensus ? CONSENSUS_SIZE : 0) + (content == null ? 0 : content.length));
+        buffer.put(VERSION).putLong(message.getId()).putInt(message.getSender()).put((byte) message.getType().ordinal());
+        buffer.put(hasConsensus ? HAS_CONSENSUS : 0);
+        if (hasConsensus) {
+            buffer.putLong(message.getConsensusIdx()).putInt(message.getEpochTS());
+        }
+        if (content == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(content.length).put(content);
+        }
+        return buffer.array();
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        checkLength(buffer, length);
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checkLength(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length + " with " + buffer.remaining() + " bytes left");
+        }
+        return length;
+    }
+}
@@ -2,7 +2,7 @@ package main.java.common;
 
 public interface MessageHandler {
     /**
-     * Parses and processes a received message in a separate thread.
+     * Parses and processes a received message, called from a dispatcher thread (see {@link Dispatcher}).
      * Verifies the message (i.e. uses authenticated reliable link) before processing it.
      *
      * @param message    the received message
@@ -10,4 +10,19 @@ public enum MessageType {
     COLLECTED,
     WRITE,
     ACCEPT,
+    FRAGMENT,
+    BUNDLE,
+    BUSY,
+    HEARTBEAT,
+    ;
+
+    /**
+     * Checks whether the type is client traffic (requests and their replies), which is handled with low priority
+     * and may be rejected under load, unlike consensus messages.
+     *
+     * @return true for CLIENT_WRITE, DECISION and BUSY messages
+     */
+    public boolean isClientTraffic() {
+        return this == CLIENT_WRITE || this == DECISION || this == BUSY;
+    }
 }
@@ -3,9 +3,29 @@ import lombok.Getter;
 
 import java.io.*;
 import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import main.java.authenticated_reliable_links.AckAggregator;
+import main.java.authenticated_reliable_links.AckFrame;
+import main.java.authenticated_reliable_links.BufferPool;
+import main.java.authenticated_reliable_links.FailureDetector;
+import main.java.authenticated_reliable_links.FragmentReassembler;
+import main.java.authenticated_reliable_links.MessageBundler;
+import main.java.authenticated_reliable_links.OutboundQueue;
 import main.java.authenticated_reliable_links.ReliableLink;
+import main.java.authenticated_reliable_links.RetransmissionScheduler;
+import main.java.transport.MulticastGroup;
+import main.java.transport.Transport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,127 +39,679 @@ public class NetworkManager {
     private static final Logger logger = LoggerFactory.getLogger(NetworkManager.class);
 
     private final int id;
-    private long sentMessages = 0;
+    public static final int INCARNATION_SHIFT = 31; // bits of the message counter within an incarnation
+    private final AtomicLong sentMessages;               // incarnation prefix followed by the message counter
+    private volatile long incarnation;                   // prefix of the IDs generated now, persisted before use
+    private static final int FLOOR_LAG = 1000;           // milliseconds an ID may take from being generated to being handed to the network
+    private volatile long sampledNextId;                 // next ID to be generated, sampled at the last lag period
+    private volatile long laggedNextId;                  // next ID to be generated, sampled at the period before (the floor with nothing outstanding)
+    private static final int SESSION_SAVE_INTERVAL = 1000; // milliseconds between saves of the floors received in sessions
+    private static final int DEFAULT_ACK_DELAY = 2000; // microseconds
+    private static final int DEFAULT_BUNDLE_DELAY = 500; // microseconds
+    private static final int DEFAULT_FRAGMENT_BUFFER = 16 * 1024 * 1024; // bytes per node
+    private static final int DEFAULT_FRAGMENT_TIMEOUT = 300;    // seconds
+    private static final int DEFAULT_OUTBOUND_WINDOW = 256;     // messages in flight per node
+    private static final int DEFAULT_OUTBOUND_QUEUE_SIZE = 4096; // client messages waiting per node
+    private static final int DEFAULT_OUTBOUND_QUEUE_LIMIT = 16384; // messages of any kind waiting per node
+    private static final int DEFAULT_HEARTBEAT_INTERVAL = 500;  // milliseconds
+    private static final int DEFAULT_SUSPECT_TIMEOUT = 3000;    // milliseconds
+    private static final int DEFAULT_PARK_BUFFER_SIZE = 1024;   // messages parked per suspected node
+    private static final Set<MessageType> MULTICAST_TYPES = EnumSet.of(MessageType.READ, MessageType.COLLECTED, MessageType.WRITE, MessageType.ACCEPT);
+
     private final KeyManager keyManager;
+    private final MessageCodec codec;                        // wire format of the messages (e.g. binary, JSON)
+    private final Transport transport;                       // moves the messages between nodes (e.g. UDP, TCP)
+    private final MulticastGroup multicastGroup;             // sends consensus broadcasts once to every server (null if disabled)
+    private final ScheduledExecutorService timer;            // timer thread for link layer events
+    private final RetransmissionScheduler retransmissionScheduler;
+    private final AckAggregator ackAggregator;
+    private final MessageBundler messageBundler;
+    private final FragmentReassembler fragmentReassembler;
+    private final FailureDetector failureDetector;           // parks the messages to servers that seem to be down
+    private final Dispatcher highDispatcher;                 // runs the tasks of ACK, session and consensus messages
+    private final Dispatcher lowDispatcher;                  // runs the tasks of client requests and replies
+    private final Map<NodeRegistry, OutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+    private final int outboundWindow;
+    private final int outboundQueueSize;
+    private final int outboundQueueLimit;
+    private final boolean outboundBlock;                     // block producers of client messages when a queue is full, otherwise reject
+
+    private final SessionStore sessionStore;                 // session keys kept on disk to be resumed after restarts
+    private final Set<NodeRegistry> resumedSessions = ConcurrentHashMap.newKeySet(); // sessions resumed from disk
+    private boolean twoWay;                                  // sessions initiated by this node are two-way (clients)
+
+    private NodeRegistry localNode;                          // this server in its own list of servers (null for clients)
+    private MessageHandler localHandler;                     // handles the messages this server sends to itself
 
     /**
      * Constructor for the NetworkManager class.
      *
      * @param id         the unique identifier for the server
      * @param keyManager for authenticated communication
+     * @param config     the configuration of this process (e.g. how messages are dispatched)
+     */
+    public NetworkManager(int id, KeyManager keyManager, ConfigLoader config) {
+        this(id, keyManager, config, Transport.fromConfig(config, "network" + id), MulticastGroup.fromConfig(config, "network" + id));
+    }
+
+    /**
+     * Constructor for the NetworkManager class, over a transport given by the caller instead of the configured one
+     * (e.g. the in-memory network of a harness running a whole cluster), without multicast.
+     *
+     * @param id         the unique identifier for the server
+     * @param keyManager for authenticated communication
+     * @param config     the configuration of this process (e.g. how messages are dispatched)
+     * @param transport  moves the messages between nodes
      */
-    public NetworkManager(int id, KeyManager keyManager) {
+    public NetworkManager(int id, KeyManager keyManager, ConfigLoader config, Transport transport) {
+        this(id, keyManager, config, transport, null);
+    }
+
+    private NetworkManager(int id, KeyManager keyManager, ConfigLoader config, Transport transport, MulticastGroup multicastGroup) {
         this.id = id;
         this.keyManager = keyManager;
+        this.incarnation = nextIncarnation(keyManager, 1);
+        this.sentMessages = new AtomicLong(incarnation << INCARNATION_SHIFT);
+        this.codec = MessageCodec.fromConfig(config);
+        this.transport = transport;
+        this.multicastGroup = multicastGroup;
+        this.highDispatcher = nonBlocking(Dispatcher.fromConfig(config, "dispatcher" + id, "high"));
+        this.lowDispatcher = nonBlocking(Dispatcher.fromConfig(config, "dispatcher" + id, "low"));
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(() -> OutboundQueue.runNonBlocking(runnable), "link-timer" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true); // acknowledged messages cancel their retransmission
+        this.timer = timer;
+        this.sampledNextId = this.laggedNextId = sentMessages.get();
+        timer.scheduleAtFixedRate(this::sampleNextId, FLOOR_LAG, FLOOR_LAG, TimeUnit.MILLISECONDS);
+        this.retransmissionScheduler = new RetransmissionScheduler(timer, highDispatcher::dispatch, BufferPool.fromConfig(config),
+                config.getIntProperty("PARK_BUFFER_SIZE", DEFAULT_PARK_BUFFER_SIZE));
+        this.ackAggregator = new AckAggregator(timer, config.getIntProperty("ACK_DELAY_MICROS", DEFAULT_ACK_DELAY),
+                (node, frame) -> sendMessage(new Message(frame.getBase(), MessageType.ACK, this.id, frame.withFloor(acknowledgedFloor(node)).toContent()), node));
+        this.messageBundler = new MessageBundler(timer, config.getIntProperty("BUNDLE_DELAY_MICROS", DEFAULT_BUNDLE_DELAY), id,
+                codec, this::generateMessageId, (node, message) -> {
+                    CompletableFuture<Void> acked = new CompletableFuture<>();
+                    dispatch(message.getType(), () -> ReliableLink.forward(transmit(message, node), acked));
+                    return acked;
+                });
+        this.failureDetector = new FailureDetector(timer, config.getIntProperty("HEARTBEAT_INTERVAL_MILLIS", DEFAULT_HEARTBEAT_INTERVAL),
+                config.getIntProperty("SUSPECT_TIMEOUT_MILLIS", DEFAULT_SUSPECT_TIMEOUT), this::sendHeartbeat, this::resumeParkedMessages);
+        this.fragmentReassembler = new FragmentReassembler(config.getIntProperty("FRAGMENT_BUFFER_BYTES", DEFAULT_FRAGMENT_BUFFER),
+                config.getIntProperty("FRAGMENT_TIMEOUT_SECONDS", DEFAULT_FRAGMENT_TIMEOUT));
+        timer.scheduleAtFixedRate(fragmentReassembler::expire, 1, 1, TimeUnit.SECONDS);
+        this.outboundWindow = config.getIntProperty("OUTBOUND_WINDOW", DEFAULT_OUTBOUND_WINDOW);
+        this.outboundQueueSize = config.getIntProperty("OUTBOUND_QUEUE_SIZE", DEFAULT_OUTBOUND_QUEUE_SIZE);
+        this.outboundQueueLimit = config.getIntProperty("OUTBOUND_QUEUE_LIMIT", DEFAULT_OUTBOUND_QUEUE_LIMIT);
+        this.outboundBlock = "block".equalsIgnoreCase(config.getStringProperty("OUTBOUND_POLICY", "reject"));
+        this.sessionStore = SessionStore.fromConfig(config, keyManager);
+        timer.scheduleAtFixedRate(() -> lowDispatcher.dispatch(sessionStore::saveFloors),
+                SESSION_SAVE_INTERVAL, SESSION_SAVE_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Used for servers to start communications between each other.
      */
     public void startServerCommunications(int serverPort, int clientPort, MessageHandler handler1, MessageHandler handler2, Collection<NodeRegistry> nodes) {
-        startListeningForUDP(serverPort, handler1);
+        this.localNode = nodes.stream().filter(node -> node.getId() == id).findFirst().orElse(null);
+        this.localHandler = handler1;
+        allowPeers(nodes);
+        startListening(serverPort, handler1);
+        if (multicastGroup != null) {
+            listenToMulticast(handler1);
+        }
         initiateBlockchainNetwork(nodes, false);
-        startListeningForUDP(clientPort, handler2);
+        failureDetector.start(nodes.stream().filter(node -> node != localNode).toList());
+        startListening(clientPort, handler2);
     }
 
     /**
      * Used for clients to start communication with servers.
      */
     public void startClientCommunications(int port, MessageHandler handler, Collection<NodeRegistry> nodes) {
-        startListeningForUDP(port, handler);
+        allowPeers(nodes);
+        startListening(port, handler);
         initiateBlockchainNetwork(nodes, true);
     }
 
     /**
      * Initiates the blockchain network by sending connect messages to other nodes.
+     * Sessions saved by a previous run that did not expire are resumed instead (see {@link SessionStore}),
+     * the others are set up in parallel in dispatcher threads.
      *
      * @param nodes the nodes to initiate a session with
      * @param twoWay if true indicates the session is two-way, otherwise means it is one-way
      */
     public void initiateBlockchainNetwork(Collection<NodeRegistry> nodes, boolean twoWay) {
+        this.twoWay = twoWay;
         long messageId = generateMessageId();
+        Set<NodeRegistry> resumed = sessionStore.resume(nodes);
+        resumedSessions.addAll(resumed);
         for (NodeRegistry node : nodes) {
-            try {
-                String encryptedKey = keyManager.generateSessionKey(node, twoWay);
-                sendMessageThread(new Message(messageId, MessageType.CONNECT, id, encryptedKey), node);
-            } catch (Exception e) {
-                logger.error("Error while creating session key for node {}{}", node.getType(), node.getId(), e);
-            }
+            if (node == localNode) continue; // messages to itself are delivered locally, without session
+            if (resumed.contains(node)) continue;
+            dispatch(MessageType.CONNECT, () -> connect(node, messageId));
+        }
+    }
+
+    /**
+     * Resumes the sessions that other nodes started with this one (e.g. clients of a server)
+     * saved by a previous run that did not expire, so that they do not need to start new ones.
+     *
+     * @param nodes the nodes whose sessions to resume
+     */
+    public void resumeSessions(Collection<NodeRegistry> nodes) {
+        resumedSessions.addAll(sessionStore.resume(nodes));
+    }
+
+    /**
+     * Starts a new session with a node, sending it the session key encrypted with its public key.
+     *
+     * @param node      the node to start a session with
+     * @param messageId the id of the CONNECT message
+     */
+    private void connect(NodeRegistry node, long messageId) {
+        try {
+            String encryptedKey = keyManager.generateSessionKey(node, twoWay);
+            sessionStore.save(node);
+            sendMessage(new Message(messageId, MessageType.CONNECT, id, encryptedKey), node);
+        } catch (Exception e) {
+            logger.error("Error while creating session key for node {}{}", node.getType(), node.getId(), e);
         }
     }
 
     public void createOneWaySession(Message message, NodeRegistry sender) {
         try {
             sender.setSendSessionKey(keyManager.getSessionKey(message));
+            sessionStore.save(sender);
+            restartResumedSession(sender);
         } catch (Exception e) {
             logger.error("Error while creating one-way session for node {}{}", sender.getType(), sender.getId(), e);
         }
     }
 
+    /**
+     * Sets the session key received from a node for both directions, replacing any previous session
+     * (e.g. resumed from disk while the node restarted without its own).
+     */
     public void createTwoWaySession(Message message, NodeRegistry sender) {
         try {
             SecretKey sessionKey = keyManager.getSessionKey(message);
-            if (sender.getRecvSessionKey() == null) {
-                sender.setRecvSessionKey(sessionKey);
-            }
+            sender.setRecvSessionKey(sessionKey);
             sender.setSendSessionKey(sessionKey);
+            resumedSessions.remove(sender); // the node itself set up the whole session
+            sessionStore.save(sender);
         } catch (Exception e) {
             logger.error("Error while creating two-way session for node {}{}", sender.getType(), sender.getId(), e);
         }
     }
 
     /**
-     * Starts listening for UDP messages on the specified port.
+     * A node sending CONNECT started a new session, so it may have lost the key of a session resumed with it:
+     * starts a new session with the node as well (once).
+     */
+    private void restartResumedSession(NodeRegistry node) {
+        if (resumedSessions.remove(node)) {
+            logger.info("Session with {}{} was restarted by the node, restarting it as well", node.getType(), node.getId());
+            connect(node, generateMessageId());
+        }
+    }
+
+    /**
+     * Allows the nodes to send messages to this node, for transports that refuse unknown senders (see {@link Transport#allowPeers}).
+     * Must be called before the nodes start sending.
+     *
+     * @param nodes the nodes allowed to send messages
+     */
+    public void allowPeers(Collection<NodeRegistry> nodes) {
+        transport.allowPeers(nodes);
+    }
+
+    /**
+     * Starts listening for messages on the specified port, through the configured transport.
+     * Every message is decoded exactly once in the receiving thread and processed in a dispatcher thread.
      *
      * @param port    the port number to listen on
      * @param handler abstraction for message processing
      */
-    public void startListeningForUDP(int port, MessageHandler handler) {
-        new Thread(() -> {
-            try (DatagramSocket udpSocket = new DatagramSocket(port)) {
-                logger.debug("Listening for UDP messages on port {}...", port);
-
-                while (true) {
-                    Message receivedMessage = ReliableLink.receiveMessage(udpSocket);
+    public void startListening(int port, MessageHandler handler) {
+        transport.listen(port, buffer -> {
+            Message receivedMessage = ReliableLink.decodeMessage(buffer);
+            if (receivedMessage != null) {
+                dispatch(receivedMessage.getType(), () -> handler.parseReceivedMessage(receivedMessage, id));
+            }
+        });
+    }
 
-                    if (receivedMessage != null) {
-                        handler.parseReceivedMessage(receivedMessage, id);
-                    }
-                }
-            } catch (IOException e) {
-                logger.error("Error while listening for UDP messages", e);
+    /**
+     * Starts receiving the messages multicast by the other servers, processed as those received on the server port.
+     * Messages this server multicast itself are looped back to it, and ignored.
+     *
+     * @param handler abstraction for message processing
+     */
+    private void listenToMulticast(MessageHandler handler) {
+        multicastGroup.listen(buffer -> {
+            Message receivedMessage = ReliableLink.decodeMessage(buffer);
+            if (receivedMessage != null && receivedMessage.getSender() != id) {
+                dispatch(receivedMessage.getType(), () -> handler.parseReceivedMessage(receivedMessage, id));
             }
-        }).start();
+        });
     }
 
     /**
-     * Sends a message using authenticated reliable links abstraction in a separate thread.
+     * Sends a message using authenticated reliable links abstraction in a dispatcher thread.
+     * Messages to this server itself are delivered locally instead.
+     * Messages other than ACK go through the outbound queue of the node (see {@link OutboundQueue}).
+     * Callbacks attached to the returned future run in the thread that processes the acknowledgment,
+     * so they should not block.
      *
      * @param message the message to send
      * @param node    the node to send the message to
+     * @return completed when the node acknowledges the message (or when it is sent, if it is never acknowledged),
+     *         or exceptionally if the message is rejected by the outbound queue or cannot be sent
+     */
+    public CompletableFuture<Void> sendMessage(Message message, NodeRegistry node) {
+        CompletableFuture<Void> delivered = new CompletableFuture<>();
+        if (node == localNode) {
+            deliverLocally(message, delivered);
+        } else if (message.getType() == MessageType.ACK) {
+            highDispatcher.dispatch(() -> ReliableLink.forward(bundleOrTransmit(message, node), delivered));
+        } else {
+            node.addOutstandingMessage(message.getId(), delivered);
+            OutboundQueue outbound = getOutboundQueue(node);
+            if (outbound.tryAcquire(delivered)) {
+                dispatchFromQueue(message, node, delivered);
+            } else {
+                outbound.enqueue(message, delivered);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Sends the same message to several nodes in a single dispatcher thread,
+     * serializing it once and authenticating it for each node.
+     * If this server is one of the nodes, the message is delivered locally to it.
+     * Nodes with a full window get the message through their outbound queue instead.
+     * Consensus messages are sent once to the multicast group of the servers, if there is one, instead of being bundled.
+     *
+     * @param message the message to send
+     * @param nodes   the nodes to send the message to
+     * @return the future of each node, completed when it acknowledges the message (see {@link #sendMessage})
+     */
+    public Map<NodeRegistry, CompletableFuture<Void>> broadcastMessage(Message message, Collection<NodeRegistry> nodes) {
+        Map<NodeRegistry, CompletableFuture<Void>> futures = new HashMap<>();
+        Map<NodeRegistry, CompletableFuture<Void>> receivers = new HashMap<>();
+        for (NodeRegistry node : nodes) {
+            CompletableFuture<Void> delivered = new CompletableFuture<>();
+            futures.put(node, delivered);
+            if (node == localNode) {
+                deliverLocally(message, delivered);
+                continue;
+            }
+            node.addOutstandingMessage(message.getId(), delivered);
+            if (getOutboundQueue(node).tryAcquire(delivered)) {
+                receivers.put(node, delivered);
+            } else {
+                getOutboundQueue(node).enqueue(message, delivered);
+            }
+        }
+        if (receivers.isEmpty()) return futures;
+        dispatch(message.getType(), () -> {
+            boolean multicast = multicastGroup != null && MULTICAST_TYPES.contains(message.getType());
+            byte[] encoded = multicast ? null : messageBundler.encode(message);
+            if (multicast) {
+                logger.debug("Multicasting message: {id:{}, type:{}, receivers:{}}", message.getId(), message.getType(), receivers.size());
+                ReliableLink.multicastMessage(message, receivers.keySet(), keyManager, codec, multicastGroup, transport, retransmissionScheduler, this::generateMessageId)
+                        .forEach((node, acked) -> ReliableLink.forward(acked, receivers.get(node)));
+            } else if (encoded != null) {
+                receivers.forEach((node, delivered) -> messageBundler.add(node, message, encoded, delivered));
+            } else {
+                logger.debug("Broadcasting message: {id:{}, content:\"{}\", type:{}, receivers:{}}", message.getId(), message.getContent(), message.getType(), receivers.size());
+                ReliableLink.broadcastMessage(message, receivers.keySet(), keyManager, codec, transport, retransmissionScheduler, this::generateMessageId)
+                        .forEach((node, acked) -> ReliableLink.forward(acked, receivers.get(node)));
+            }
+        });
+        return futures;
+    }
+
+    /**
+     * Sends in a dispatcher thread a message that took a credit of the node's window (released once it is delivered).
+     */
+    private void dispatchFromQueue(Message message, NodeRegistry node, CompletableFuture<Void> delivered) {
+        dispatch(message.getType(), () -> ReliableLink.forward(bundleOrTransmit(message, node), delivered));
+    }
+
+    /**
+     * Sends a message, through the next bundle to the node if it can be bundled.
+     */
+    private CompletableFuture<Void> bundleOrTransmit(Message message, NodeRegistry node) {
+        byte[] encoded = messageBundler.encode(message);
+        if (encoded == null) {
+            return transmit(message, node);
+        }
+        CompletableFuture<Void> delivered = new CompletableFuture<>();
+        messageBundler.add(node, message, encoded, delivered);
+        return delivered;
+    }
+
+    private CompletableFuture<Void> transmit(Message message, NodeRegistry node) {
+        logger.debug("Sending message: {id:{}, content:\"{}\", type:{}, receiver:{}{}}", message.getId(), message.getContent(), message.getType(), node.getType(), node.getId());
+        return ReliableLink.sendMessage(message, node, keyManager, codec, transport, retransmissionScheduler, this::generateMessageId);
+    }
+
+    private OutboundQueue getOutboundQueue(NodeRegistry node) {
+        return outboundQueues.computeIfAbsent(node, k -> new OutboundQueue(node, outboundWindow, outboundQueueSize, outboundQueueLimit, outboundBlock,
+                (message, delivered) -> dispatchFromQueue(message, node, delivered)));
+    }
+
+    /**
+     * Processes an ACK message, releasing the acknowledged messages and sending the queued ones that fit in the window.
+     *
+     * @param message the received ACK message
+     * @param sender  the node that sent the ACK
+     */
+    public void receiveAck(Message message, NodeRegistry sender) {
+        AckFrame frame = AckFrame.fromContent(message.getId(), message.getContent());
+        sender.ackMessages(frame);
+        if (frame != null) sender.coverReceivedMessages(frame.getFloor());
+        OutboundQueue outbound = outboundQueues.get(sender);
+        if (outbound != null) outbound.drain();
+    }
+
+    /**
+     * Records an authenticated message received from a server, so that it is not suspected to be down (see {@link FailureDetector}).
+     *
+     * @param sender the server that sent the message
+     */
+    public void heardFrom(NodeRegistry sender) {
+        failureDetector.heard(sender);
+    }
+
+    /**
+     * Processes a HEARTBEAT message, forgetting the ids received from the sender below the floor it announces.
+     *
+     * @param message the received HEARTBEAT message, whose content is the floor
+     * @param sender  the server that sent the heartbeat
+     */
+    public void receiveHeartbeat(Message message, NodeRegistry sender) {
+        try {
+            sender.coverReceivedMessages(Long.parseLong(message.getContent()));
+        } catch (NumberFormatException e) {
+            logger.error("Invalid HEARTBEAT floor: \"{}\"", message.getContent());
+        }
+    }
+
+    /**
+     * Sends a HEARTBEAT to a server in a dispatcher thread, bypassing its outbound queue (which holds messages while it is suspected).
+     * The heartbeat announces the floor of the messages to the server, so that it forgets their ids even when no ACK is sent.
+     * Servers without session are skipped, since the heartbeat could not be authenticated.
+     */
+    private void sendHeartbeat(NodeRegistry node) {
+        if (node.getSendSessionKey() == null) return;
+        Message heartbeat = new Message(generateMessageId(), MessageType.HEARTBEAT, id, String.valueOf(acknowledgedFloor(node)));
+        highDispatcher.dispatch(() -> transmit(heartbeat, node));
+    }
+
+    /**
+     * Retrieves the floor announced to a node: every message sent to it with a lower id was delivered or given up.
+     * With nothing outstanding, the floor is the next ID as of one to two lag periods ago, so that a message whose ID
+     * was generated just before it is handed to the network (e.g. by the consensus) is not taken as a duplicate.
+     */
+    private long acknowledgedFloor(NodeRegistry node) {
+        return node.getAcknowledgedFloor(laggedNextId);
+    }
+
+    /**
+     * Samples the next ID to be generated, every lag period in the timer thread.
+     */
+    private void sampleNextId() {
+        laggedNextId = sampledNextId;
+        sampledNextId = sentMessages.get();
+    }
+
+    /**
+     * Sends the messages parked while a server was suspected: first the retransmissions, then the queued messages.
+     */
+    private void resumeParkedMessages(NodeRegistry node) {
+        retransmissionScheduler.resume(node);
+        OutboundQueue outbound = outboundQueues.get(node);
+        if (outbound != null) timer.execute(outbound::drain); // released after the retransmissions are handed to the dispatcher
+    }
+
+    /**
+     * Retrieves the state of the outbound queue and of the park buffer of each node.
+     *
+     * @return map from node name (e.g. "server1") to its queued, in flight, dropped and blocked messages
+     *         (see {@link OutboundQueue#getMetrics()}) and its parked ones (see {@link RetransmissionScheduler#getParkMetrics})
      */
-    public void sendMessageThread(Message message, NodeRegistry node) {
-        new Thread(() -> {
-            logger.debug("Sending message: {id:{}, content:\"{}\", type:{}, receiver:{}{}}", message.getId(), message.getContent(), message.getType(), node.getType(), node.getId());
-            ReliableLink.sendMessage(message, node, keyManager);
-        }).start();
+    public Map<String, Map<String, Long>> getOutboundMetrics() {
+        Map<String, Map<String, Long>> metrics = new HashMap<>();
+        outboundQueues.forEach((node, outbound) -> {
+            Map<String, Long> nodeMetrics = outbound.getMetrics();
+            nodeMetrics.putAll(retransmissionScheduler.getParkMetrics(node));
+            metrics.put(node.getType() + node.getId(), nodeMetrics);
+        });
+        return metrics;
     }
 
     /**
-     * Acknowledges a message in a separate thread.
+     * Hands a message this server sent to itself directly to its handler in a dispatcher thread,
+     * without socket, authentication, acknowledgment or retransmission.
+     *
+     * @param message   the message to deliver
+     * @param delivered completed once the handler processed the message
+     */
+    private void deliverLocally(Message message, CompletableFuture<Void> delivered) {
+        dispatch(message.getType(), () -> {
+            logger.debug("Delivering message locally: {id:{}, type:{}}", message.getId(), message.getType());
+            try {
+                localHandler.handleMessage(message, localNode);
+                delivered.complete(null);
+            } catch (RuntimeException e) {
+                delivered.completeExceptionally(e);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Runs a task about a message in the dispatcher of the message's priority lane:
+     * client requests and replies (CLIENT_WRITE, DECISION, BUSY) go on the low lane, so that they never
+     * delay ACK, session and consensus messages, which go on the high lane.
+     * Bundles and fragments go on the high lane, their messages being dispatched again once extracted.
+     *
+     * @param type the type of the message
+     * @param task the task processing or sending the message
+     */
+    public void dispatch(MessageType type, Runnable task) {
+        if (type.isClientTraffic()) {
+            lowDispatcher.dispatch(task);
+        } else {
+            highDispatcher.dispatch(task);
+        }
+    }
+
+    /**
+     * Marks the tasks of a dispatcher as network tasks, including those run by the caller when it is full,
+     * so that they never block on a full outbound queue (see {@link OutboundQueue#runNonBlocking}).
+     */
+    private static Dispatcher nonBlocking(Dispatcher dispatcher) {
+        return new Dispatcher() {
+            @Override
+            public void dispatch(Runnable task) {
+                dispatcher.dispatch(() -> OutboundQueue.runNonBlocking(task));
+            }
+
+            @Override
+            public Map<String, Long> getMetrics() {
+                return dispatcher.getMetrics();
+            }
+        };
+    }
+
+    /**
+     * Retrieves the metrics of the dispatcher of each priority lane.
+     *
+     * @return map from lane ("high" or "low") to its metrics (see {@link Dispatcher#getMetrics()})
+     */
+    public Map<String, Map<String, Long>> getDispatchMetrics() {
+        Map<String, Map<String, Long>> metrics = new HashMap<>();
+        metrics.put("high", highDispatcher.getMetrics());
+        metrics.put("low", lowDispatcher.getMetrics());
+        return metrics;
+    }
+
+    /**
+     * Retrieves the state of the pool of the buffers holding outgoing messages.
+     *
+     * @return the metrics of the pool (see {@link BufferPool#getMetrics()}), empty if messages are not pooled
+     */
+    public Map<String, Long> getBufferPoolMetrics() {
+        BufferPool pool = retransmissionScheduler.getBufferPool();
+        return pool == null ? Collections.emptyMap() : pool.getMetrics();
+    }
+
+    /**
+     * Retrieves the number of messages waiting for acknowledgment from each node.
+     *
+     * @return map from node name (e.g. "server1") to its number of unacknowledged messages
+     */
+    public Map<String, Integer> getInFlightCounts() {
+        return retransmissionScheduler.getInFlightCounts();
+    }
+
+    /**
+     * Retrieves the number of messages received by each socket of the transport.
+     *
+     * @return map from socket name (e.g. "5000#0" for UDP) to its number of received messages
+     */
+    public Map<String, Long> getReceiveCounts() {
+        return transport.getReceiveCounts();
+    }
+
+    /**
+     * Acknowledges a message, coalescing the acknowledgments to the same node received in a short window
+     * (ACK_DELAY_MICROS) into a single ACK message sent in a dispatcher thread.
+     *
      * @param message  the received message to ack
      * @param sender   the sender of original message (will be receiver of the ack)
      */
     public void acknowledgeMessage(Message message, NodeRegistry sender) {
-        sendMessageThread(new Message(message.getId(), MessageType.ACK, id), sender);
+        if (sender == localNode || transport.isReliable()) return; // nothing to acknowledge
+        ackAggregator.acknowledge(sender, message.getId());
+    }
+
+    /**
+     * Marks a message as received from its sender and acknowledges it, before it is processed.
+     * Messages extracted from a BUNDLE are neither: the bundle was deduplicated and acknowledged as a whole,
+     * and its messages are never sent on their own (see {@link MessageBundler}).
+     *
+     * @param message the received (and verified) message
+     * @param sender  the sender of the message
+     * @return true if the message is being received for the first time (always for bundled messages)
+     */
+    public boolean receiveMessage(Message message, NodeRegistry sender) {
+        if (message.isBundled()) return true;
+        boolean firstTime = sender.addReceivedMessage(message.getId());
+        acknowledgeMessage(message, sender);
+        return firstTime;
+    }
+
+    /**
+     * Processes a BUNDLE message: marks it as received and acknowledges it, then hands each of its messages
+     * to the handler in the dispatcher of its lane, without deduplicating or acknowledging them (see {@link #receiveMessage}).
+     *
+     * @param bundle  the received (and verified) bundle
+     * @param sender  the sender of the bundle
+     * @param handler handles the messages of the bundle
+     */
+    public void receiveBundle(Message bundle, NodeRegistry sender, MessageHandler handler) {
+        if (!receiveMessage(bundle, sender)) return;
+        for (Message bundled : MessageBundler.fromBundle(bundle)) {
+            bundled.setBundled(true);
+            dispatch(bundled.getType(), () -> handler.handleMessage(bundled, sender));
+        }
+    }
+
+    /**
+     * Processes a FRAGMENT message: fragments that do not fit the reassembly buffer of their sender
+     * (see {@link FragmentReassembler#hasRoom}) are neither marked as received nor acknowledged, so that they are retransmitted.
+     * The others are added to the message being reassembled, which is verified and handled by the handler once complete.
+     *
+     * @param fragment the received (and verified) fragment
+     * @param sender   the sender of the fragment
+     * @param handler  verifies and handles the reassembled message
+     */
+    public void receiveFragment(Message fragment, NodeRegistry sender, MessageHandler handler) {
+        if (!fragmentReassembler.hasRoom(sender, fragment)) return; // refused, retransmitted later
+        if (!receiveMessage(fragment, sender)) return;
+        Message original = fragmentReassembler.add(sender, fragment);
+        if (original != null) {
+            dispatch(original.getType(), () -> handler.parseReceivedMessage(original, id));
+        }
     }
 
     /**
-     * Generates a unique message ID.
+     * Generates a unique message ID, without locking.
+     * IDs of each run start above every ID of previous runs (see {@link #nextIncarnation}),
+     * so peers do not drop the messages of a restarted node as duplicates.
      *
      * @return the generated message ID
      */
-    synchronized public long generateMessageId() {
-        return sentMessages++;
+    public long generateMessageId() {
+        long id = sentMessages.getAndIncrement();
+        return (id >>> INCARNATION_SHIFT) == incarnation ? id : advanceIncarnation(id);
+    }
+
+    /**
+     * Moves to a new incarnation once the message counter of the current one is exhausted,
+     * instead of letting the counter carry into the incarnation bits (the IDs that carried are never used).
+     * The new incarnation is persisted before its first ID, and skips the one the counter carried into.
+     *
+     * @param exhausted an ID generated beyond the counter of its incarnation
+     * @return an ID of the new incarnation
+     */
+    private synchronized long advanceIncarnation(long exhausted) {
+        if ((exhausted >>> INCARNATION_SHIFT) > incarnation) {
+            long next = nextIncarnation(keyManager, incarnation + 2);
+            logger.warn("Message IDs of incarnation {} exhausted, moving to incarnation {}", incarnation, next);
+            sentMessages.set(next << INCARNATION_SHIFT);
+            incarnation = next;
+        }
+        return generateMessageId();
+    }
+
+    /**
+     * Reserves the next incarnation of this node in the "incarnation" file next to its keys (and sessions, see {@link SessionStore}).
+     * The incarnation is above the one in the file, and at least the current time in seconds so that it still increases
+     * if the file is lost or unreadable. The file is replaced atomically before the incarnation is used,
+     * a crash leaving either the previous or the new one, and the node does not start if it cannot be written.
+     *
+     * @param keyManager gives the directory of the file
+     * @param minimum    the lowest acceptable incarnation
+     * @return the prefix of the IDs generated from now on
+     */
+    private static long nextIncarnation(KeyManager keyManager, long minimum) {
+        Path file = Paths.get(keyManager.getDirectory(), "incarnation");
+        long stored = 0;
+        try {
+            if (Files.exists(file)) stored = Long.parseLong(Files.readString(file).trim());
+        } catch (IOException | NumberFormatException e) {
+            logger.error("Failed to read incarnation from {}, using the clock", file, e);
+        }
+        long incarnation = Math.max(Math.max(stored + 1, minimum), System.currentTimeMillis() / 1000);
+        if (incarnation >= 1L << (Long.SIZE - 1 - INCARNATION_SHIFT)) {
+            throw new IllegalStateException("No incarnation left after " + stored + " in " + file);
+        }
+        try {
+            Path temporary = file.resolveSibling("incarnation.tmp");
+            Files.writeString(temporary, String.valueOf(incarnation));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save incarnation to " + file, e);
+        }
+        return incarnation;
     }
 }
@@ -1,11 +1,16 @@
 package main.java.common;
 import java.security.PublicKey;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.Getter;
 import lombok.Setter;
+import main.java.authenticated_reliable_links.AckFrame;
+import main.java.authenticated_reliable_links.ReceiveWindow;
+import main.java.authenticated_reliable_links.RttEstimator;
+import main.java.authenticated_reliable_links.SendWindow;
 import main.java.blockchain.AddressGenerator;
 import main.java.crypto_utils.RSAKeyReader;
 import org.hyperledger.besu.datatypes.Address;
@@ -24,14 +29,20 @@ public class NodeRegistry {
     private int port;
     private int id;
     private String type;
-    private PublicKey publicKey;
-    private Address address;
+    // key material is immutable and published through volatile references, so reading it never blocks
+    private volatile PublicKey publicKey;
+    private volatile Address address;
 
-    private SecretKey sendSessionKey; // key used to send messages to this node
-    private SecretKey recvSessionKey; // key used to receive messages from this node
+    private volatile SecretKey sendSessionKey; // key used to send messages to this node
+    private volatile SecretKey recvSessionKey; // key used to receive messages from this node
 
-    Map<Long, Message> sentMessages = new HashMap<>();
-    Map<Long, Message> receivedMessages = new HashMap<>();
+    private final SendWindow sentMessages = new SendWindow(); // ids waiting for ACK
+    private final ConcurrentSkipListSet<Long> outstanding = new ConcurrentSkipListSet<>(); // ids of the messages to this node not yet delivered
+    private final ReceiveWindow receivedMessages = new ReceiveWindow(); // ids already received, for deduplication
+    private final RttEstimator rttEstimator = new RttEstimator();
+    private final AtomicLong retransmissions = new AtomicLong();
+    private volatile long lastHeard;   // System.nanoTime() of the last authenticated message received from this node
+    private volatile boolean suspected; // not heard from for a while (see FailureDetector)
 
     /**
      * Constructor for the Node class.
@@ -52,26 +63,27 @@ public class NodeRegistry {
     }
 
     /**
-     * Retrieves the public key for the node.
+     * Retrieves the public key for the node, reading it from disk on first use.
+     * Concurrent first calls may read the same key more than once, but never block each other.
      *
      * @return the public key of the node
      */
-    synchronized public PublicKey getPublicKey() {
+    public PublicKey getPublicKey() {
+        PublicKey key = publicKey;
+        if (key != null) return key;
         try {
-            if (publicKey == null) {
-                this.publicKey = RSAKeyReader.readPublicKey(publicKeysDir + type + id + "_public.key");
-                if (Objects.equals(type, "client")) {
-                    this.address = AddressGenerator.generateAddress(publicKey);
-                }
+            key = RSAKeyReader.readPublicKey(publicKeysDir + type + id + "_public.key");
+            if (Objects.equals(type, "client")) {
+                this.address = AddressGenerator.generateAddress(key); // published before the key
             }
-
+            this.publicKey = key;
         } catch (Exception e) {
             logger.error("Failed to read public key", e);
         }
-        return publicKey;
+        return key;
     }
 
-    synchronized public Address getAddress() {
+    public Address getAddress() {
         if (this.address ==  null) {
             getPublicKey();
         }
@@ -83,7 +95,7 @@ public class NodeRegistry {
      *
      * @return the secret key to send messages to this node
      */
-    synchronized public SecretKey getSendSessionKey() {
+    public SecretKey getSendSessionKey() {
         return sendSessionKey;
     }
 
@@ -92,7 +104,7 @@ public class NodeRegistry {
      *
      * @return the secret key to receive messages from this node
      */
-    synchronized public SecretKey getRecvSessionKey() {
+    public SecretKey getRecvSessionKey() {
         return recvSessionKey;
     }
 
@@ -101,7 +113,7 @@ public class NodeRegistry {
      *
      * @param key the secret key to send messages to this node
      */
-    synchronized public void setSendSessionKey(SecretKey key) {
+    public void setSendSessionKey(SecretKey key) {
         this.sendSessionKey = key;
     }
 
@@ -110,51 +122,143 @@ public class NodeRegistry {
      *
      * @param key the secret key to receive messages from this node
      */
-    synchronized public void setRecvSessionKey(SecretKey key) {
+    public void setRecvSessionKey(SecretKey key) {
         this.recvSessionKey = key;
     }
 
     /**
-     * Adds a sent message to the sentMessages map.
+     * Adds a sent message to the messages waiting for acknowledgment.
      *
-     * @param id      the unique identifier for the message
-     * @param message the message to be added
+     * @param id the unique identifier for the message
+     * @return the future completed (in the thread processing the ACK) when the message is acknowledged
      */
-    synchronized public void addSentMessage(long id, Message message) {
-        sentMessages.put(id, message);
+    public CompletableFuture<Void> addSentMessage(long id) {
+        return sentMessages.add(id, System.nanoTime());
+    }
+
+    /**
+     * Records a retransmission of a message waiting for acknowledgment.
+     *
+     * @param id the unique identifier for the message
+     * @return true if the message is still waiting for acknowledgment (i.e. it should be resent)
+     */
+    public boolean addRetransmission(long id) {
+        if (!sentMessages.retransmitted(id)) return false;
+        retransmissions.incrementAndGet();
+        return true;
     }
 
      /**
-      * Adds a received message to the receivedMessages map.
-      * Check if the message is being received for the first time.
+      * Adds a received message to the receive window.
+      * Check if the message is being received for the first time,
+      * only messages known to have been received are considered duplicates.
       *
-      * @param id      the unique identifier for the message
-      * @param message the message to be added
+      * @param id the unique identifier for the message
       * @return true if the message is being received for the first time
      */
-    synchronized public boolean addReceivedMessage(long id, Message message) {
-        return receivedMessages.putIfAbsent(id, message) == null;
+    public boolean addReceivedMessage(long id) {
+        return receivedMessages.markReceived(id);
+    }
+
+    /**
+     * Forgets the ids of the received messages below the floor announced by this node (see {@link ReceiveWindow#cover}).
+     *
+     * @param floor every message this node sent with a lower id was acknowledged (0 if not announced)
+     */
+    public void coverReceivedMessages(long floor) {
+        receivedMessages.cover(floor);
     }
 
     /**
-     * Acknowledges a message by setting its received status to true.
+     * Retrieves the floor of the ids received from this node, below which every id is a duplicate.
+     *
+     * @return the floor of the receive window
+     */
+    public long getReceivedFloor() {
+        return receivedMessages.getFloor();
+    }
+
+    /**
+     * Tracks a message to this node from the moment it is handed to the network (it may still wait in a queue or bundle)
+     * until it is delivered or fails, so that the floor announced to the node does not go past it.
+     *
+     * @param id        the unique identifier for the message
+     * @param delivered completed once the message is acknowledged, or exceptionally if it is given up
+     */
+    public void addOutstandingMessage(long id, CompletableFuture<Void> delivered) {
+        outstanding.add(id);
+        delivered.whenComplete((result, error) -> outstanding.remove(id));
+    }
+
+    /**
+     * Retrieves the floor announced to this node: every message sent to it with a lower id was delivered (or given up),
+     * so it is never sent again.
+     *
+     * @param nextId the next id to be generated, the floor when no message to this node is outstanding
+     * @return the lowest outstanding id, or nextId if there is none
+     */
+    public long getAcknowledgedFloor(long nextId) {
+        Long lowest = outstanding.ceiling(Long.MIN_VALUE);
+        return lowest == null ? nextId : Math.min(lowest, nextId);
+    }
+
+    /**
+     * Acknowledges a message by releasing it from the messages waiting for acknowledgment,
+     * completing the future returned when it was sent.
      * Only ack messages that were sent.
      *
      * @param id the unique identifier for the message
      */
-    synchronized public void ackMessage(long id) {
-        Message message = sentMessages.get(id);
-        if (message != null) {
-            message.setReceived(true);
+    public void ackMessage(long id) {
+        rttEstimator.addSample(sentMessages.ack(id, System.nanoTime()));
+    }
+
+    /**
+     * Acknowledges every message in the range and selective bitmap of an ACK frame.
+     * Only ack messages that were sent: the range is walked among the pending messages, not id by id.
+     *
+     * @param frame the acknowledged ids, ignored if null (malformed ACK)
+     */
+    public void ackMessages(AckFrame frame) {
+        if (frame != null) {
+            sentMessages.forEachPending(frame.getBase(), frame.getCumulative(), this::ackMessage);
+            frame.forEachSelectiveId(this::ackMessage);
         }
     }
 
     /**
-     * Check if message was acknowledged by verifying received status
+     * Retrieves the number of messages sent to this node waiting for acknowledgment.
      *
-     * @param id the unique identifier for the message
+     * @return the number of unacknowledged messages
+     */
+    public int getPendingCount() {
+        return sentMessages.getPendingCount();
+    }
+
+    /**
+     * Retrieves the current retransmission timeout, estimated from the round-trip time to this node.
+     *
+     * @return the retransmission timeout in nanoseconds
+     */
+    public long getRetransmissionTimeout() {
+        return rttEstimator.getRto();
+    }
+
+    /**
+     * Retrieves the smoothed round-trip time to this node.
+     *
+     * @return the smoothed RTT in nanoseconds, or -1 if no message was acknowledged yet
+     */
+    public long getSmoothedRtt() {
+        return rttEstimator.getSmoothedRtt();
+    }
+
+    /**
+     * Retrieves the number of retransmissions to this node.
+     *
+     * @return the number of messages resent to this node
      */
-    synchronized public boolean checkAckedMessage(long id) {
-        return sentMessages.get(id).isReceived();
+    public long getRetransmissions() {
+        return retransmissions.get();
     }
 }
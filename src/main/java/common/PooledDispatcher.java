@@ -0,0 +1,70 @@
+package main.java.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatcher backed by a bounded pool of platform threads with a bounded queue.
+ * When the queue is full the task runs in the calling thread, slowing down the producer.
+ */
+public class PooledDispatcher implements Dispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(PooledDispatcher.class);
+
+    private static final long KEEP_ALIVE = 60L; // seconds
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    /**
+     * Constructor for the PooledDispatcher class.
+     *
+     * @param name      prefix for the names of the threads
+     * @param threads   maximum number of threads
+     * @param queueSize maximum number of tasks waiting for a thread
+     */
+    public PooledDispatcher(String name, int threads, int queueSize) {
+        AtomicInteger counter = new AtomicInteger();
+        RejectedExecutionHandler whenFull = (task, pool) -> {
+            callerRuns.incrementAndGet();
+            if (!pool.isShutdown()) task.run();
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }, whenFull);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void dispatch(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Dispatched task failed", e);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new HashMap<>();
+        metrics.put("queued", (long) executor.getQueue().size());
+        metrics.put("active", (long) executor.getActiveCount());
+        metrics.put("threads", (long) executor.getPoolSize());
+        metrics.put("completed", executor.getCompletedTaskCount());
+        metrics.put("callerRuns", callerRuns.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,173 @@
+package main.java.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the session keys of a node sealed on local disk (see {@link KeyManager#seal}),
+ * so that a restarted node resumes its sessions without a new RSA handshake with every peer.
+ * Each session expires a while after it was established, a full handshake being needed afterwards.
+ * The floor of the ids received from each peer (see {@link NodeRegistry#getReceivedFloor}) is saved with its keys,
+ * and kept up to date (see {@link #saveFloors}), so that messages received before the restart cannot be replayed.
+ * The file holds one line per peer: "name sendKey recvKey expiresAt floor", keys in Base64 ("-" if missing).
+ */
+public class SessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(SessionStore.class);
+
+    private static final int DEFAULT_SESSION_TTL = 3600; // seconds
+
+    private final KeyManager keyManager;
+    private final Path file;
+    private final long ttlMillis;
+    private final Map<String, String> sessions = new HashMap<>(); // peer name (e.g. "server1") to its line
+    private final Map<String, NodeRegistry> peers = new HashMap<>(); // nodes whose floors are saved, by name
+    private boolean loaded = false;
+
+    /**
+     * Constructor for the SessionStore class.
+     *
+     * @param keyManager seals the sessions, and gives the directory of the file ("sessions" next to the keys)
+     * @param ttlSeconds how long a session can be resumed after being established (0 disables resumption)
+     */
+    public SessionStore(KeyManager keyManager, int ttlSeconds) {
+        this.keyManager = keyManager;
+        this.file = Paths.get(keyManager.getDirectory(), "sessions");
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    /**
+     * Creates the session store defined in the configuration file: SESSION_TTL_SECONDS.
+     *
+     * @param config     the configuration of this process
+     * @param keyManager seals the sessions
+     * @return the session store defined in the configuration
+     */
+    public static SessionStore fromConfig(ConfigLoader config, KeyManager keyManager) {
+        return new SessionStore(keyManager, config.getIntProperty("SESSION_TTL_SECONDS", DEFAULT_SESSION_TTL));
+    }
+
+    /**
+     * Restores the sessions that did not expire, setting the keys of the nodes and the floor of the ids received from them.
+     * Only sessions with both keys are restored, the others need a handshake,
+     * as well as nodes that already started a new session with this node.
+     *
+     * @param nodes the nodes to restore sessions with
+     * @return the nodes whose sessions were restored
+     */
+    synchronized public Set<NodeRegistry> resume(Collection<NodeRegistry> nodes) {
+        Set<NodeRegistry> resumed = new HashSet<>();
+        if (ttlMillis <= 0) return resumed;
+        load();
+
+        for (NodeRegistry node : nodes) {
+            String line = sessions.get(node.getType() + node.getId());
+            if (line == null || node.getSendSessionKey() != null) continue;
+            String[] parts = line.split(" ");
+            SecretKey sendKey = decodeKey(parts[1]);
+            SecretKey recvKey = decodeKey(parts[2]);
+            if (sendKey == null || recvKey == null) continue;
+            node.setSendSessionKey(sendKey);
+            node.setRecvSessionKey(recvKey);
+            node.coverReceivedMessages(Long.parseLong(parts[4]));
+            peers.put(parts[0], node);
+            resumed.add(node);
+        }
+        logger.info("Resumed {} sessions from {}", resumed.size(), file);
+        return resumed;
+    }
+
+    /**
+     * Stores the current session keys of a node, expiring after the configured time.
+     *
+     * @param node the node whose session changed
+     */
+    synchronized public void save(NodeRegistry node) {
+        if (ttlMillis <= 0) return;
+        load();
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        String name = node.getType() + node.getId();
+        sessions.put(name, name + " " + encodeKey(node.getSendSessionKey()) + " " + encodeKey(node.getRecvSessionKey())
+                + " " + expiresAt + " " + node.getReceivedFloor());
+        peers.put(name, node);
+        write();
+    }
+
+    /**
+     * Stores the floors of the ids received from the nodes whose sessions are stored, if any of them rose.
+     * Called periodically: only the messages received since the last call could be replayed after a restart.
+     */
+    synchronized public void saveFloors() {
+        boolean changed = false;
+        for (Map.Entry<String, NodeRegistry> entry : peers.entrySet()) {
+            String line = sessions.get(entry.getKey());
+            if (line == null) continue;
+            String[] parts = line.split(" ");
+            long floor = entry.getValue().getReceivedFloor();
+            if (floor == Long.parseLong(parts[4])) continue;
+            parts[4] = String.valueOf(floor);
+            sessions.put(entry.getKey(), String.join(" ", parts));
+            changed = true;
+        }
+        if (changed) write();
+    }
+
+    /**
+     * Replaces the file with the current sessions, sealed.
+     */
+    private void write() {
+        try {
+            Path temporary = file.resolveSibling("sessions.tmp");
+            Files.write(temporary, keyManager.seal(String.join("\n", sessions.values()).getBytes(StandardCharsets.UTF_8)));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | GeneralSecurityException e) {
+            logger.error("Failed to save sessions to {}", file, e);
+        }
+    }
+
+    /**
+     * Reads the sessions that did not expire from the file, once.
+     * Lines of older runs without a floor are dropped, their sessions could not be resumed without replays.
+     */
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.exists(file)) return;
+        try {
+            String content = new String(keyManager.unseal(Files.readAllBytes(file)), StandardCharsets.UTF_8);
+            long now = System.currentTimeMillis();
+            for (String line : content.split("\n")) {
+                String[] parts = line.split(" ");
+                if (parts.length == 5 && Long.parseLong(parts[3]) > now) {
+                    sessions.put(parts[0], line);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to read sessions from {}, starting new sessions", file, e);
+        }
+    }
+
+    private static String encodeKey(SecretKey key) {
+        return key == null ? "-" : Base64.getEncoder().encodeToString(key.getEncoded());
+    }
+
+    private static SecretKey decodeKey(String encoded) {
+        return "-".equals(encoded) ? null : new SecretKeySpec(Base64.getDecoder().decode(encoded), "AES");
+    }
+}
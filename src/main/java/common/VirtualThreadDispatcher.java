@@ -0,0 +1,78 @@
+package main.java.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatcher that runs every task in its own virtual thread.
+ * Virtual threads are looked up by reflection so the project still builds for Java 17,
+ * they are available when running on Java 21 or later.
+ */
+public class VirtualThreadDispatcher implements Dispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadDispatcher.class);
+
+    private final ExecutorService executor;
+    private final AtomicLong running = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * Constructor for the VirtualThreadDispatcher class.
+     *
+     * @param name prefix for the names of the threads (only used in logs)
+     */
+    public VirtualThreadDispatcher(String name) {
+        this.executor = newVirtualThreadExecutor();
+        logger.info("Dispatching {} tasks in virtual threads", name);
+    }
+
+    /**
+     * Check if this JVM supports virtual threads.
+     *
+     * @return true if virtual threads can be created
+     */
+    public static boolean isSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not supported by this JVM", e);
+        }
+    }
+
+    @Override
+    public void dispatch(Runnable task) {
+        running.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Dispatched task failed", e);
+            } finally {
+                running.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new HashMap<>();
+        metrics.put("active", running.get());
+        metrics.put("completed", completed.get());
+        return metrics;
+    }
+}
@@ -3,9 +3,8 @@ package main.java.conditional_collect;
 import java.util.HashMap;
 import java.util.Map;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import main.java.consensus.State;
+import main.java.utils.JsonSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,8 +64,7 @@ public class ConditionalCollectImpl implements ConditionalCollect {
 
     private static String collectionOfStatesToJson(Map<Integer, State> states) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(states);
+            return JsonSerializer.toJson(states);
         } catch (Exception e) {
             logger.error("Failed to convert collected messages map to JSON", e);
             return null;
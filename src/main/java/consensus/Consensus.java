@@ -5,7 +5,6 @@ import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -14,6 +13,7 @@ import main.java.blockchain.Transaction;
 import main.java.common.KeyManager;
 import main.java.common.NodeRegistry;
 import main.java.utils.Behavior;
+import main.java.utils.JsonSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +24,8 @@ import org.slf4j.LoggerFactory;
 @Setter
 public class Consensus {
     private static final Logger logger = LoggerFactory.getLogger(Consensus.class);
+    private static final TypeReference<Map<Integer, State>> STATES = new TypeReference<>() {};
+    private static final TypeReference<List<Transaction>> TRANSACTIONS = new TypeReference<>() {};
     private final Map<Integer, ConsensusEpoch> epochs =  new HashMap<>();
 
     private final long index;
@@ -329,8 +331,7 @@ public class Consensus {
 
     public static Map<Integer, State> collectionOfStatesFromJson(String json) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, new TypeReference<>() {});
+            return JsonSerializer.fromJson(json, STATES);
         } catch (Exception e) {
             logger.error("Failed to convert JSON to collected states map", e);
             return null;
@@ -339,8 +340,7 @@ public class Consensus {
 
     public static String transactionsToJson(List<Transaction> transactions) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(transactions);
+            return JsonSerializer.toJson(transactions);
         } catch (Exception e) {
             logger.error("Failed to convert list of transactions to JSON", e);
             return null;
@@ -349,8 +349,7 @@ public class Consensus {
 
     public static List<Transaction> transactionsFromJson(String json) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, new TypeReference<>() {});
+            return JsonSerializer.fromJson(json, TRANSACTIONS);
         } catch (Exception e) {
             logger.error("Failed to convert JSON to list of transactions", e);
             return null;
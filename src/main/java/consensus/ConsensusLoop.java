@@ -30,6 +30,7 @@ public class ConsensusLoop implements Runnable {
 
     private final Map<Long, Consensus> consensusInstances = new HashMap<>();
     private final List<Transaction> requests = new ArrayList<>();
+    private volatile int pendingRequests = 0; // size of requests, read without the monitor (admission control)
     private final BlockchainNetworkServer server;
     private final Blockchain blockchain;
     private final Thread blockchainThread;
@@ -201,6 +202,7 @@ public class ConsensusLoop implements Runnable {
     synchronized public void decide(long consensusIndex, List<Transaction> transactions) {
         if (!blockchain.addTransactionsForBlock(consensusIndex, transactions)) return; //returns if the block already exists
         transactions.forEach(requests::remove);
+        pendingRequests = requests.size();
         currIndex++;
         inConsensus = false;
         wakeup();
@@ -215,7 +217,7 @@ public class ConsensusLoop implements Runnable {
     synchronized public void doWork() {
         while (getWaitCondition()) { //is leader && not in other instance
             try {
-                wait(); // wait until condition is met
+                wait(hasLiveQuorum() ? 0 : BATCHING_DELAY); // wait until condition is met, suspected servers are not notified
             } catch (Exception e) {
                 logger.error(e.getMessage());
                 return;
@@ -234,7 +236,8 @@ public class ConsensusLoop implements Runnable {
     /**
      * Check if this process is in a consensus instance,
      * or has no client requests to be processed,
-     * or is not the leader for the current epoch of consensus instance.
+     * or is not the leader for the current epoch of consensus instance,
+     * or too many servers are suspected to be down for the instance to complete.
      *
      * FIXME - this condition simulates the average time to complete a consensus,
      *  since blockchains like Ethereum use a fixed time to let consensus complete
@@ -244,7 +247,22 @@ public class ConsensusLoop implements Runnable {
     private boolean getWaitCondition() {
         Consensus consensus = getConsensusInstance(currIndex);
         return inConsensus || requests.isEmpty()
-            || consensus.getConsensusCurrentEpoch().getLeaderId() != server.getId();
+            || consensus.getConsensusCurrentEpoch().getLeaderId() != server.getId()
+            || !hasLiveQuorum();
+    }
+
+    /**
+     * Check if at least N - F servers (including this one) are not suspected to be down by the network layer,
+     * so that a new consensus instance does not wait on servers known to be dead.
+     *
+     * @return true if a quorum of servers seems alive
+     */
+    private boolean hasLiveQuorum() {
+        int F = (N - 1) / 3;
+        long alive = server.getNetworkNodes().values().stream()
+                .filter(node -> node.getId() == server.getId() || !node.isSuspected())
+                .count();
+        return alive >= N - F;
     }
 
     synchronized void wakeup() {
@@ -283,6 +301,16 @@ public class ConsensusLoop implements Runnable {
             logger.info("\n\nI am byzantine and I will not verify the transactions\n");
         }
         requests.add(transaction);
+        pendingRequests = requests.size();
         wakeup();
     }
+
+    /**
+     * Retrieves the number of client requests waiting to be ordered, without taking the consensus monitor.
+     *
+     * @return the number of pending requests
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests;
+    }
 }
@@ -7,9 +7,9 @@ import java.util.Map;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.*;
+import main.java.utils.JsonSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,8 +37,7 @@ public class State {
     @JsonIgnore
     public String getPropertiesToSign() {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return valueTS + "," + value + "," + objectMapper.writeValueAsString(writeSet);
+            return valueTS + "," + value + "," + JsonSerializer.toJson(writeSet);
         } catch (JsonProcessingException e) {
             logger.error("Failed to get properties to sign state", e);
             return null;
@@ -50,8 +49,7 @@ public class State {
      */
     public String toJson() {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(this);
+            return JsonSerializer.toJson(this);
         } catch (JsonProcessingException e) {
             logger.error("Failed to convert state to JSON", e);
             return null;
@@ -63,8 +61,7 @@ public class State {
      */
     public static State fromJson(String json) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(json, State.class);
+            return JsonSerializer.fromJson(json, State.class);
         } catch (JsonProcessingException e) {
             logger.error("Failed to convert JSON to state", e);
             return null;
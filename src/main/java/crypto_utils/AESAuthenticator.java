@@ -15,6 +15,8 @@ public class AESAuthenticator {
     private static final Logger logger = LoggerFactory.getLogger(AESAuthenticator.class);
 
     private static final String ALGORITHM = "HmacSHA256";
+    public static final int HMAC_SIZE = 32; // bytes of a HmacSHA256
+    private static final ThreadLocal<Mac> macs = new ThreadLocal<>(); // looking up a Mac is costly, and it is not thread safe
 
     /**
      * Generates HMAC of a message using the secret key.
@@ -28,7 +30,11 @@ public class AESAuthenticator {
      * @throws InvalidKeyException      if the key is invalid
      */
     public static byte[] generateHmac(SecretKey key, int senderId, int receiverId, byte[] message) throws NoSuchAlgorithmException, InvalidKeyException {
-        Mac mac = Mac.getInstance(ALGORITHM);
+        Mac mac = macs.get();
+        if (mac == null) {
+            mac = Mac.getInstance(ALGORITHM);
+            macs.set(mac);
+        }
         mac.init(key);
 
         mac.update(DataUtils.intToBytes(senderId));
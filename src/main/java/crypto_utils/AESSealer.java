@@ -0,0 +1,67 @@
+package main.java.crypto_utils;
+
+import java.nio.ByteBuffer;
+import java.security.*;
+import java.util.Arrays;
+import javax.crypto.*;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Utility class for sealing data kept on local disk (encrypted and authenticated) using AES-GCM.
+ */
+public class AESSealer {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_SIZE = 12;
+    private static final int TAG_SIZE = 128; // bits
+    private static final int KEY_SIZE = 16;  // bytes
+    private static final SecureRandom RANDOM = new SecureRandom(); // thread-safe, seeded once
+
+    /**
+     * Derives the key used to seal data from a secret that never leaves the process (e.g. the private key).
+     *
+     * @param secret  the encoded secret
+     * @param purpose distinguishes keys derived from the same secret
+     * @return the sealing key
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     * @throws InvalidKeyException      if the secret is invalid
+     */
+    public static SecretKey deriveKey(byte[] secret, String purpose) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+        byte[] derived = mac.doFinal(purpose.getBytes());
+        return new SecretKeySpec(Arrays.copyOf(derived, KEY_SIZE), "AES");
+    }
+
+    /**
+     * Encrypts and authenticates data.
+     *
+     * @param key  the sealing key
+     * @param data the data to seal
+     * @return the IV followed by the ciphertext and its tag
+     * @throws GeneralSecurityException if the data cannot be sealed
+     */
+    public static byte[] seal(SecretKey key, byte[] data) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_SIZE];
+        RANDOM.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE, iv));
+        byte[] ciphertext = cipher.doFinal(data);
+        return ByteBuffer.allocate(IV_SIZE + ciphertext.length).put(iv).put(ciphertext).array();
+    }
+
+    /**
+     * Decrypts sealed data, checking it was not modified.
+     *
+     * @param key    the sealing key
+     * @param sealed the data returned by {@link #seal}
+     * @return the original data
+     * @throws GeneralSecurityException if the data was not sealed with the key or was modified
+     */
+    public static byte[] unseal(SecretKey key, byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length < IV_SIZE) throw new AEADBadTagException("Sealed data too short");
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE, sealed, 0, IV_SIZE));
+        return cipher.doFinal(sealed, IV_SIZE, sealed.length - IV_SIZE);
+    }
+}
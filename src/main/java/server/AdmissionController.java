@@ -0,0 +1,78 @@
+package main.java.server;
+
+import main.java.common.ConfigLoader;
+import main.java.common.NodeRegistry;
+import main.java.consensus.ConsensusLoop;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which client requests are handed to the consensus, before their signatures are verified,
+ * so that a chatty or malicious client cannot saturate the server.
+ * Each client has its own token bucket (see {@link TokenBucket}) and the pending requests of
+ * every client together are bounded by the capacity of the mempool.
+ */
+public class AdmissionController {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    private static final int DEFAULT_CLIENT_RATE = 100;   // requests per second
+    private static final int DEFAULT_CLIENT_BURST = 50;   // requests
+    private static final int DEFAULT_MEMPOOL_SIZE = 10000; // pending requests
+
+    private final Map<NodeRegistry, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ConsensusLoop consensusLoop;
+    private final int clientRate;
+    private final int clientBurst;
+    private final int mempoolSize;
+
+    /**
+     * Constructor for the AdmissionController class.
+     *
+     * @param consensusLoop the consensus loop holding the pending requests
+     * @param clientRate    the requests per second allowed to each client
+     * @param clientBurst   the requests allowed at once to each client
+     * @param mempoolSize   the maximum pending requests
+     */
+    public AdmissionController(ConsensusLoop consensusLoop, int clientRate, int clientBurst, int mempoolSize) {
+        this.consensusLoop = consensusLoop;
+        this.clientRate = clientRate;
+        this.clientBurst = clientBurst;
+        this.mempoolSize = mempoolSize;
+    }
+
+    /**
+     * Creates the admission controller defined in the configuration file:
+     * CLIENT_RATE_PER_SECOND and CLIENT_BURST bound each client, MEMPOOL_SIZE bounds the pending requests.
+     *
+     * @param config        the configuration of this process
+     * @param consensusLoop the consensus loop holding the pending requests
+     * @return the admission controller defined in the configuration
+     */
+    public static AdmissionController fromConfig(ConfigLoader config, ConsensusLoop consensusLoop) {
+        return new AdmissionController(consensusLoop,
+                config.getIntProperty("CLIENT_RATE_PER_SECOND", DEFAULT_CLIENT_RATE),
+                config.getIntProperty("CLIENT_BURST", DEFAULT_CLIENT_BURST),
+                config.getIntProperty("MEMPOOL_SIZE", DEFAULT_MEMPOOL_SIZE));
+    }
+
+    /**
+     * Check if a request of the client can be handed to the consensus.
+     *
+     * @param client the client that sent the request
+     * @return true if the request is admitted, false if the client or the server is busy
+     */
+    public boolean admit(NodeRegistry client) {
+        if (consensusLoop.getPendingRequestCount() >= mempoolSize) {
+            logger.warn("Mempool full ({} requests), rejected request from client{}", mempoolSize, client.getId());
+            return false;
+        }
+        if (!buckets.computeIfAbsent(client, k -> new TokenBucket(clientRate, clientBurst)).tryAcquire()) {
+            logger.warn("Client{} exceeded its rate of {} requests per second, rejected request", client.getId(), clientRate);
+            return false;
+        }
+        return true;
+    }
+}
@@ -38,8 +38,10 @@ public class BlockchainNetworkServer {
     private final KeyManager keyManager;
     // the following is set based on config
     private ConsensusLoop consensusLoop;
+    private AdmissionController admissionController;
     private Thread consensusThread;
     private NetworkManager networkManager;
+    private ConfigLoader config;
 
     /**
      * Constructor for the BlockchainNetworkServer class.
@@ -81,12 +83,27 @@ public class BlockchainNetworkServer {
 
         ConfigLoader.getProcessId();
 
+        launch(serverId, configFile, behavior);
+    }
+
+    /**
+     * Creates and starts a server, so that several servers (and clients) can run in the same JVM,
+     * e.g. communicating through the in-memory transport (TRANSPORT=memory).
+     *
+     * @param serverId   the unique identifier for the server
+     * @param configFile the configuration file
+     * @param behavior   the behavior of the server (for tests)
+     * @return the started server
+     */
+    public static BlockchainNetworkServer launch(int serverId, String configFile, Behavior behavior) {
         BlockchainNetworkServer server = new BlockchainNetworkServer(serverId, behavior);
         server.loadConfig(configFile);
         server.consensusLoop = new ConsensusLoop(server, behavior);
-        server.consensusThread = new Thread(server.consensusLoop);
-        server.networkManager = new NetworkManager(server.id, server.keyManager);
+        server.admissionController = AdmissionController.fromConfig(server.config, server.consensusLoop);
+        server.consensusThread = new Thread(server.consensusLoop, "consensus" + serverId);
+        server.networkManager = new NetworkManager(server.id, server.keyManager, server.config);
         server.start();
+        return server;
     }
 
     /**
@@ -95,6 +112,8 @@ public class BlockchainNetworkServer {
     public void start() {
         NetworkServerMessageHandler networkServerMessageHandler = new NetworkServerMessageHandler(this);
         ClientMessageHandler clientMessageHandler = new ClientMessageHandler(this);
+        networkManager.allowPeers(networkClients.values());
+        networkManager.resumeSessions(networkClients.values());
         networkManager.startServerCommunications(serverPort, clientPort, networkServerMessageHandler, clientMessageHandler, networkNodes.values());
         consensusThread.start();
     }
@@ -104,7 +123,7 @@ public class BlockchainNetworkServer {
      * Creates the NetworkManager.
      */
     public void loadConfig(String configFile) {
-        ConfigLoader config = new ConfigLoader(configFile);
+        this.config = new ConfigLoader(configFile);
 
         int numServers = config.getIntProperty("NUM_SERVERS");
         int numClients = config.getIntProperty("NUM_CLIENTS");
@@ -132,23 +151,21 @@ public class BlockchainNetworkServer {
 
     public void sendConsensusResponse(Message message, int receiverId) {
         NodeRegistry receiver = networkNodes.get(receiverId);
-        networkManager.sendMessageThread(message, receiver);
+        networkManager.sendMessage(message, receiver);
     }
 
     public void sendReplyToClient(Message message, int clientId) {
         NodeRegistry receiver = networkClients.get(clientId);
-        networkManager.sendMessageThread(message, receiver);
+        networkManager.sendMessage(message, receiver);
     }
 
     public void broadcastConsensusResponse(long consensusIdx, int epochTS, MessageType type, String content) {
         long messageId = generateMessageId();
-        for (NodeRegistry node : networkNodes.values()) {
-            Message message = new Message(messageId, type, id, content, consensusIdx, epochTS);
-            networkManager.sendMessageThread(message, node);
-        }
+        Message message = new Message(messageId, type, id, content, consensusIdx, epochTS);
+        networkManager.broadcastMessage(message, networkNodes.values());
     }
 
-    synchronized public long generateMessageId() {
+    public long generateMessageId() {
         return networkManager.generateMessageId();
     }
 }
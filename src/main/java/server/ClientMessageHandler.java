@@ -18,6 +18,7 @@ public class ClientMessageHandler implements MessageHandler {
     private final NetworkManager networkManager;          // to send back messages if needed
     private final KeyManager keyManager;                  // to verify authenticity and signatures
     private final ConsensusLoop consensusLoop;            // to request a block to be added to the blockchain
+    private final AdmissionController admissionController; // to reject requests of busy clients or when the server is busy
 
     /**
      * Constructor for the ClientMessageHandler class.
@@ -29,17 +30,16 @@ public class ClientMessageHandler implements MessageHandler {
         this.networkManager = server.getNetworkManager();
         this.keyManager = server.getKeyManager();
         this.consensusLoop = server.getConsensusLoop();
+        this.admissionController = server.getAdmissionController();
     }
 
     @Override
     public void parseReceivedMessage(Message message, int receiverId) {
-        new Thread(() -> {
-            NodeRegistry sender = clientNodes.get(message.getSender());
-            if (!ReliableLink.verifyMessage(message, sender, receiverId, keyManager)) {
-                return;
-            }
-            handleMessage(message, sender);
-        }).start();
+        NodeRegistry sender = clientNodes.get(message.getSender());
+        if (!ReliableLink.verifyMessage(message, sender, receiverId, keyManager)) {
+            return;
+        }
+        handleMessage(message, sender);
     }
 
     @Override
@@ -48,15 +48,27 @@ public class ClientMessageHandler implements MessageHandler {
         boolean firstTime;
         switch (message.getType()) {
             case ACK:
-                sender.ackMessage(message.getId()); // do not add the message since it does not have unique id
+                networkManager.receiveAck(message, sender); // do not add the message since it does not have unique id
                 break;
             case CLIENT_WRITE:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
-                networkManager.acknowledgeMessage(message, sender);
-                if (firstTime) consensusLoop.addRequest(message);
+                firstTime = networkManager.receiveMessage(message, sender);
+                if (!firstTime) break;
+                if (admissionController.admit(sender)) {
+                    consensusLoop.addRequest(message);
+                } else {
+                    // the request was acknowledged, so the client backs off instead of retransmitting it
+                    networkManager.sendMessage(new Message(networkManager.generateMessageId(), MessageType.BUSY,
+                            networkManager.getId(), String.valueOf(message.getId())), sender);
+                }
+                break;
+            case BUNDLE:
+                networkManager.receiveBundle(message, sender, this); // its messages are neither deduplicated nor acknowledged
+                break;
+            case FRAGMENT:
+                networkManager.receiveFragment(message, sender, this); // the reassembled message is verified again
                 break;
             case CONNECT:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
+                firstTime = sender.addReceivedMessage(message.getId());
                 if (firstTime) networkManager.createTwoWaySession(message, sender);
                 if (sender.getSendSessionKey() != null) { // guarantee that session key is updated
                     logger.debug("KEY SET FOR COMMUNICATION WITH CLIENT{}", sender.getId());
@@ -39,13 +39,12 @@ public class NetworkServerMessageHandler implements MessageHandler {
 
     @Override
     public void parseReceivedMessage(Message message, int receiverId) {
-        new Thread(() -> {
-            NodeRegistry sender = networkNodes.get(message.getSender());
-            if (!ReliableLink.verifyMessage(message, sender, receiverId, keyManager)) {
-                return;
-            }
-            handleMessage(message, sender);
-        }).start();
+        NodeRegistry sender = networkNodes.get(message.getSender());
+        if (!ReliableLink.verifyMessage(message, sender, receiverId, keyManager)) {
+            return;
+        }
+        networkManager.heardFrom(sender);
+        handleMessage(message, sender);
     }
 
     @Override
@@ -88,35 +87,39 @@ public class NetworkServerMessageHandler implements MessageHandler {
         boolean firstTime;
         switch (message.getType()) {
             case ACK:
-                sender.ackMessage(message.getId()); // do not add the message since it does not have unique id
+                networkManager.receiveAck(message, sender); // do not add the message since it does not have unique id
+                break;
+            case HEARTBEAT:
+                networkManager.receiveHeartbeat(message, sender); // also tells that the sender is alive, neither deduplicated nor acknowledged
                 break;
             case READ:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
-                networkManager.acknowledgeMessage(message, sender);
+                firstTime = networkManager.receiveMessage(message, sender);
                 if (firstTime) consensusLoop.processReadMessage(message);
                 break;
             case STATE:
-                sender.addReceivedMessage(message.getId(), message);
-                networkManager.acknowledgeMessage(message, sender);
+                networkManager.receiveMessage(message, sender);
                 consensusLoop.processStateMessage(message);
                 break;
             case COLLECTED:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
-                networkManager.acknowledgeMessage(message, sender);
+                firstTime = networkManager.receiveMessage(message, sender);
                 if (firstTime) consensusLoop.processCollectedMessage(message);
                 break;
             case WRITE:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
-                networkManager.acknowledgeMessage(message, sender);
+                firstTime = networkManager.receiveMessage(message, sender);
                 if (firstTime) consensusLoop.processWriteMessage(message);
                 break;
             case ACCEPT:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
-                networkManager.acknowledgeMessage(message, sender);
+                firstTime = networkManager.receiveMessage(message, sender);
                 if (firstTime) consensusLoop.processAcceptMessage(message);
                 break;
+            case BUNDLE:
+                networkManager.receiveBundle(message, sender, this); // its messages are neither deduplicated nor acknowledged
+                break;
+            case FRAGMENT:
+                networkManager.receiveFragment(message, sender, this); // the reassembled message is verified again
+                break;
             case CONNECT:
-                firstTime = sender.addReceivedMessage(message.getId(), message);
+                firstTime = sender.addReceivedMessage(message.getId());
                 if (firstTime) networkManager.createOneWaySession(message, sender);
                 if (sender.getSendSessionKey() != null) { // guarantee that session key is updated
                     logger.debug("KEY SET FOR COMMUNICATION WITH SERVER{}", sender.getId());
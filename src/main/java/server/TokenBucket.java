@@ -0,0 +1,42 @@
+package main.java.server;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of requests of a single client:
+ * tokens are refilled continuously at a fixed rate up to the bucket capacity (the allowed burst),
+ * and each admitted request takes one token.
+ */
+public class TokenBucket {
+    private final double ratePerNano;   // tokens refilled per nanosecond
+    private final double capacity;      // maximum tokens, i.e. the allowed burst
+    private double tokens;
+    private long lastRefill;            // System.nanoTime() of the last refill
+
+    /**
+     * Constructor for the TokenBucket class, starting full.
+     *
+     * @param ratePerSecond the requests allowed per second
+     * @param burst         the requests allowed at once
+     */
+    public TokenBucket(int ratePerSecond, int burst) {
+        this.ratePerNano = (double) ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @return true if the request is admitted
+     */
+    synchronized public boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+}
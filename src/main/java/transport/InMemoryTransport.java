@@ -0,0 +1,219 @@
+package main.java.transport;
+
+import main.java.common.NodeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Moves messages between nodes running in the same JVM, without sockets, so that a whole cluster
+ * can run inside one process (e.g. to measure the throughput of the protocol without kernel noise).
+ * Nodes reach each other when their transports share a {@link Network}, which maps every listening port to an endpoint
+ * with a lock-free inbox drained by its own thread.
+ * Latency, loss and reordering can be simulated, in which case the messages wait in the endpoint
+ * until their delivery time. Lossy links behave as UDP (acknowledged and retransmitted), lossless ones as TCP.
+ */
+public class InMemoryTransport implements Transport {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryTransport.class);
+
+    private static final int MAX_MESSAGE = 64 * 1024 * 1024; // larger messages are fragmented
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(10); // longest wait for a message
+
+    private static final Network SHARED = new Network(); // network of the transports created from the configuration
+
+    private final String name;
+    private final Network network;  // endpoints this node can send to
+    private final Map<Integer, Endpoint> listening = new ConcurrentHashMap<>(); // endpoints of this node
+    private final long latency;     // nanoseconds added to every message
+    private final long reorder;     // maximum random nanoseconds added to every message
+    private final int lossPercent;  // probability of dropping a message
+
+    /**
+     * Constructor for the InMemoryTransport class, on the network shared by every transport created this way.
+     *
+     * @param name          prefix for the names of the threads
+     * @param latencyMicros the delay of every message
+     * @param reorderMicros the maximum random delay added to every message, so that messages overtake each other
+     * @param lossPercent   the percentage of messages dropped
+     */
+    public InMemoryTransport(String name, long latencyMicros, long reorderMicros, int lossPercent) {
+        this(name, latencyMicros, reorderMicros, lossPercent, SHARED);
+    }
+
+    /**
+     * Constructor for the InMemoryTransport class, on a network owned by the caller (e.g. a harness running a cluster).
+     *
+     * @param name          prefix for the names of the threads
+     * @param latencyMicros the delay of every message
+     * @param reorderMicros the maximum random delay added to every message, so that messages overtake each other
+     * @param lossPercent   the percentage of messages dropped
+     * @param network       the network of the nodes this one talks to
+     */
+    public InMemoryTransport(String name, long latencyMicros, long reorderMicros, int lossPercent, Network network) {
+        this.name = name;
+        this.network = network;
+        this.latency = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        this.reorder = TimeUnit.MICROSECONDS.toNanos(reorderMicros);
+        this.lossPercent = lossPercent;
+    }
+
+    /**
+     * Registers the endpoint of the port, failing if another node of the network already listens on it.
+     */
+    @Override
+    public void listen(int port, Consumer<ByteBuffer> receiver) {
+        Endpoint endpoint = new Endpoint(receiver);
+        endpoint.thread = new Thread(endpoint, name + "-mem" + port);
+        endpoint.thread.setDaemon(true);
+        if (network.endpoints.putIfAbsent(port, endpoint) != null) {
+            logger.error("Port {} is already in use by another in-memory endpoint", port);
+            return;
+        }
+        listening.put(port, endpoint);
+        endpoint.thread.start();
+        logger.debug("Listening for in-memory messages on port {}...", port);
+    }
+
+    /**
+     * Puts the message in the inbox of the node's port, unless it is lost.
+     * Messages to ports nobody listens on are dropped, as with a node that is down.
+     */
+    @Override
+    public void send(NodeRegistry node, byte[] messageBytes) throws IOException {
+        Endpoint endpoint = network.endpoints.get(node.getPort());
+        if (endpoint == null) {
+            logger.debug("No in-memory endpoint on port {}, dropped message", node.getPort());
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (lossPercent > 0 && random.nextInt(100) < lossPercent) {
+            return;
+        }
+        long delay = latency + (reorder > 0 ? random.nextLong(reorder + 1) : 0);
+        endpoint.deliver(new Delivery(messageBytes, System.nanoTime() + delay, endpoint.sequence.getAndIncrement()));
+    }
+
+    @Override
+    public boolean isReliable() {
+        return lossPercent == 0;
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE;
+    }
+
+    /**
+     * Retrieves the number of messages received by each endpoint of this node, named by port.
+     */
+    @Override
+    public Map<String, Long> getReceiveCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        listening.forEach((port, endpoint) -> counts.put(String.valueOf(port), endpoint.received.get()));
+        return counts;
+    }
+
+    /**
+     * Ports of the nodes that can reach each other, as a network of their own: separate networks may reuse ports.
+     */
+    public static class Network {
+        private final Map<Integer, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+        /**
+         * Stops the threads of every endpoint, after which messages to them are dropped.
+         */
+        public void close() {
+            endpoints.values().forEach(endpoint -> endpoint.thread.interrupt());
+            endpoints.clear();
+        }
+    }
+
+    /**
+     * A message on its way to an endpoint.
+     */
+    private static class Delivery implements Comparable<Delivery> {
+        private final byte[] bytes;
+        private final long dueAt;    // System.nanoTime() of delivery
+        private final long sequence; // order of sending, to break ties
+
+        private Delivery(byte[] bytes, long dueAt, long sequence) {
+            this.bytes = bytes;
+            this.dueAt = dueAt;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Delivery other) {
+            int byTime = Long.signum(dueAt - other.dueAt); // nanoTime may overflow
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Receiving side of a port: producers add to a lock-free inbox and the endpoint's thread moves
+     * the messages to a heap ordered by delivery time (owned by that thread only) before handing them to the receiver.
+     */
+    private static class Endpoint implements Runnable {
+        private final Consumer<ByteBuffer> receiver;
+        private final Queue<Delivery> inbox = new ConcurrentLinkedQueue<>();
+        private final PriorityQueue<Delivery> delayed = new PriorityQueue<>();
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicLong received = new AtomicLong();
+        private volatile Thread thread;
+
+        private Endpoint(Consumer<ByteBuffer> receiver) {
+            this.receiver = receiver;
+        }
+
+        private void deliver(Delivery delivery) {
+            inbox.add(delivery);
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = System.nanoTime();
+                Delivery delivery;
+                while ((delivery = inbox.poll()) != null) {
+                    if (delayed.isEmpty() && delivery.dueAt - now <= 0) {
+                        receive(delivery); // nothing delayed to overtake
+                    } else {
+                        delayed.add(delivery);
+                    }
+                }
+
+                now = System.nanoTime();
+                while (!delayed.isEmpty() && delayed.peek().dueAt - now <= 0) {
+                    receive(delayed.poll());
+                }
+
+                if (inbox.isEmpty()) {
+                    LockSupport.parkNanos(this, delayed.isEmpty() ? IDLE_PARK : delayed.peek().dueAt - now);
+                }
+            }
+        }
+
+        private void receive(Delivery delivery) {
+            received.incrementAndGet();
+            try {
+                receiver.accept(ByteBuffer.wrap(delivery.bytes));
+            } catch (RuntimeException e) {
+                logger.error("Error while receiving in-memory message", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package main.java.transport;
+
+import main.java.common.ConfigLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.function.Consumer;
+
+/**
+ * IP multicast group joined by every server of a LAN, used to send a broadcast message once to all of them
+ * (fair loss, as UDP). Each message carries an authentication field for every server (see {@link main.java.common.KeyManager}),
+ * and is acknowledged by each server as usual, retransmissions being sent by unicast.
+ * Multicast is looped back to the sending host, so servers on the same host receive it as well.
+ */
+public class MulticastGroup {
+    private static final Logger logger = LoggerFactory.getLogger(MulticastGroup.class);
+
+    private static final int MAX_BUFFER = 65536;   // larger than any UDP datagram
+    private static final int MAX_DATAGRAM = 60000; // larger messages are sent by unicast
+
+    private final String name;
+    private final InetSocketAddress group;
+    private final NetworkInterface networkInterface;
+    private final DatagramChannel sendChannel;
+
+    /**
+     * Constructor for the MulticastGroup class.
+     *
+     * @param name             prefix for the names of the threads
+     * @param group            the address and port of the group
+     * @param networkInterface the interface used to send and receive the messages of the group
+     * @throws IOException if the sending channel cannot be opened
+     */
+    public MulticastGroup(String name, InetSocketAddress group, NetworkInterface networkInterface) throws IOException {
+        this.name = name;
+        this.group = group;
+        this.networkInterface = networkInterface;
+        this.sendChannel = DatagramChannel.open(StandardProtocolFamily.INET);
+        sendChannel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+        sendChannel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+        sendChannel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, 1); // never leaves the LAN
+    }
+
+    /**
+     * Creates the multicast group defined in the configuration file, if any:
+     * MULTICAST_GROUP (address, empty to disable multicast), MULTICAST_PORT and MULTICAST_INTERFACE.
+     * Multicast requires the UDP transport.
+     *
+     * @param config the configuration of this process
+     * @param name   prefix for the names of the threads
+     * @return the multicast group, or null if multicast is disabled or cannot be used
+     */
+    public static MulticastGroup fromConfig(ConfigLoader config, String name) {
+        String address = config.getStringProperty("MULTICAST_GROUP", "");
+        if (address.isBlank()) return null;
+        if (!"udp".equalsIgnoreCase(config.getStringProperty("TRANSPORT", "udp"))) {
+            logger.warn("Multicast requires TRANSPORT=udp, broadcasting by unicast");
+            return null;
+        }
+        try {
+            NetworkInterface networkInterface = NetworkInterface.getByName(config.getStringProperty("MULTICAST_INTERFACE", "lo"));
+            if (networkInterface == null) {
+                logger.error("Unknown multicast interface, broadcasting by unicast");
+                return null;
+            }
+            InetSocketAddress group = new InetSocketAddress(InetAddress.getByName(address), config.getIntProperty("MULTICAST_PORT", 6000));
+            return new MulticastGroup(name, group, networkInterface);
+        } catch (IOException e) {
+            logger.error("Failed to open multicast group {}, broadcasting by unicast", address, e);
+            return null;
+        }
+    }
+
+    /**
+     * Joins the group and starts receiving its messages in a new thread.
+     * The buffer given to the receiver holds a single message and is reused afterwards.
+     *
+     * @param receiver called with every received message
+     */
+    public void listen(Consumer<ByteBuffer> receiver) {
+        DatagramChannel channel;
+        try {
+            channel = DatagramChannel.open(StandardProtocolFamily.INET);
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true); // every server of the host binds the port
+            channel.bind(new InetSocketAddress(group.getPort()));
+            channel.join(group.getAddress(), networkInterface);
+        } catch (IOException e) {
+            logger.error("Failed to join multicast group {}", group, e);
+            return;
+        }
+        new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_BUFFER);
+            logger.debug("Listening for multicast messages on {}...", group);
+            try (channel) {
+                while (true) {
+                    buffer.clear();
+                    channel.receive(buffer);
+                    buffer.flip();
+                    receiver.accept(buffer);
+                }
+            } catch (IOException e) {
+                logger.error("Error while listening for multicast messages", e);
+            }
+        }, name + "-multicast").start();
+    }
+
+    /**
+     * Sends a message once to every member of the group.
+     *
+     * @param messageBytes the authenticated message
+     * @throws IOException if the message could not be sent
+     */
+    public void send(byte[] messageBytes) throws IOException {
+        sendChannel.send(ByteBuffer.wrap(messageBytes), group);
+    }
+
+    /**
+     * Retrieves the size of the largest message sent to the group, larger messages are sent by unicast.
+     *
+     * @return the maximum message size in bytes
+     */
+    public int getMaxMessageSize() {
+        return MAX_DATAGRAM;
+    }
+}
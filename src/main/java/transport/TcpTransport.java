@@ -0,0 +1,274 @@
+package main.java.transport;
+
+import main.java.common.NodeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sends messages through a persistent TCP connection to each node, every message prefixed by its length.
+ * Each connection has a writer thread that keeps (re)connecting until the message is written.
+ * Messages written to a connection that breaks before the node reads them are lost, and messages are dropped when
+ * too many wait for a connection, so the transport is not reliable: messages are acknowledged and retransmitted
+ * by the reliable links exactly as over UDP. TCP only carries larger messages (up to 1 MB) without fragments
+ * and recovers lost packets itself, at the cost of a writer thread per connection.
+ * Lengths are read before any message is authenticated, so connections are only accepted from the addresses of known
+ * nodes (see {@link #allowPeers}) and lengths are capped well below the memory of the node.
+ */
+public class TcpTransport implements Transport {
+    private static final Logger logger = LoggerFactory.getLogger(TcpTransport.class);
+
+    private static final int MAX_MESSAGE = 1024 * 1024;    // larger messages are fragmented, longer frames close the connection
+    private static final int QUEUE_SIZE = 4096;            // messages waiting for a connection, more are dropped
+    private static final long MAX_RECONNECT_DELAY = 1000L;   // milliseconds
+
+    private final String name;
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private final Set<InetAddress> peers = ConcurrentHashMap.newKeySet(); // addresses connections are accepted from
+    private final AtomicLong dropped = new AtomicLong();   // messages dropped because their connection was full
+
+    /**
+     * Constructor for the TcpTransport class.
+     *
+     * @param name prefix for the names of the threads
+     */
+    public TcpTransport(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Starts accepting connections on the specified port, reading the messages of every connection
+     * from a non-blocking channel polled through a single selector.
+     */
+    @Override
+    public void listen(int port, Consumer<ByteBuffer> receiver) {
+        new Thread(() -> {
+            try (ServerSocketChannel server = ServerSocketChannel.open();
+                 Selector selector = Selector.open()) {
+                server.bind(new InetSocketAddress(port));
+                server.configureBlocking(false);
+                server.register(selector, SelectionKey.OP_ACCEPT);
+                logger.debug("Listening for TCP connections on port {}...", port);
+
+                while (true) {
+                    selector.select();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isAcceptable()) {
+                            accept(server, selector);
+                        } else if (key.isReadable()) {
+                            read(key, receiver);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Error while listening for TCP connections", e);
+            }
+        }, name + "-tcp" + port).start();
+    }
+
+    /**
+     * Accepts connections only from the addresses of known nodes, since no frame of the others is read.
+     */
+    @Override
+    public void allowPeers(Collection<NodeRegistry> nodes) {
+        for (NodeRegistry node : nodes) {
+            try {
+                peers.add(InetAddress.getByName(node.getIp()));
+            } catch (UnknownHostException e) {
+                logger.error("Unknown address {} of {}{}, its connections are refused", node.getIp(), node.getType(), node.getId());
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server, Selector selector) throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        InetAddress address = ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+        if (!peers.contains(address)) {
+            logger.warn("Refused TCP connection from unknown address {}", address);
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new FrameReader());
+        logger.debug("Accepted TCP connection from {}", channel.getRemoteAddress());
+    }
+
+    private static void read(SelectionKey key, Consumer<ByteBuffer> receiver) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        try {
+            if (!((FrameReader) key.attachment()).read(channel, receiver)) {
+                logger.debug("TCP connection closed by {}", channel.getRemoteAddress());
+                key.cancel();
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.error("Error while reading from TCP connection, closing it", e);
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Queues the message to be written by the connection to the node, without blocking:
+     * if too many messages are waiting it is dropped, as a lost datagram, and retransmitted later.
+     */
+    @Override
+    public void send(NodeRegistry node, byte[] messageBytes) throws IOException {
+        Connection connection = connections.computeIfAbsent(node.getIp() + ":" + node.getPort(), k -> new Connection(node.getIp(), node.getPort()));
+        if (!connection.queue.offer(messageBytes)) {
+            logger.warn("Connection to {}:{} is full, dropped message ({} dropped so far)", node.getIp(), node.getPort(), dropped.incrementAndGet());
+        }
+    }
+
+    @Override
+    public boolean isReliable() {
+        return false; // messages in a broken connection are lost
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE;
+    }
+
+    /**
+     * Reads length-prefixed messages from a connection, reusing the same buffer while messages fit in it.
+     */
+    private static class FrameReader {
+        private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        private ByteBuffer body = ByteBuffer.allocate(4096);
+        private boolean readingBody = false;
+
+        /**
+         * Reads every available byte, passing each complete message to the receiver.
+         *
+         * @return false if the connection was closed
+         */
+        private boolean read(SocketChannel channel, Consumer<ByteBuffer> receiver) throws IOException {
+            while (true) {
+                if (!readingBody) {
+                    int read = channel.read(header);
+                    if (read < 0) return false;
+                    if (header.hasRemaining()) return true;
+
+                    int length = header.flip().getInt();
+                    header.clear();
+                    if (length <= 0 || length > MAX_MESSAGE) {
+                        throw new IOException("Invalid message length " + length);
+                    }
+                    if (length > body.capacity()) {
+                        body = ByteBuffer.allocate(length);
+                    }
+                    body.clear().limit(length);
+                    readingBody = true;
+                }
+
+                int read = channel.read(body);
+                if (read < 0) return false;
+                if (body.hasRemaining()) return true;
+
+                body.flip();
+                receiver.accept(body);
+                readingBody = false;
+            }
+        }
+    }
+
+    /**
+     * Persistent connection to a node, written by its own thread from a bounded queue.
+     */
+    private class Connection implements Runnable {
+        private final String ip;
+        private final int port;
+        private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+        private SocketChannel channel;
+
+        private Connection(String ip, int port) {
+            this.ip = ip;
+            this.port = port;
+            Thread writer = new Thread(this, name + "-tcp-" + ip + ":" + port);
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            while (true) {
+                byte[] messageBytes;
+                try {
+                    messageBytes = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                long delay = 10L;
+                while (!write(header, messageBytes)) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    delay = Math.min(MAX_RECONNECT_DELAY, delay * 2);
+                }
+            }
+        }
+
+        /**
+         * Writes a message, connecting first if needed.
+         *
+         * @return false if the connection failed (and was closed)
+         */
+        private boolean write(ByteBuffer header, byte[] messageBytes) {
+            try {
+                if (channel == null) {
+                    channel = SocketChannel.open(new InetSocketAddress(ip, port));
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    logger.debug("Connected to {}:{}", ip, port);
+                }
+                header.clear();
+                header.putInt(messageBytes.length).flip();
+                ByteBuffer[] frame = {header, ByteBuffer.wrap(messageBytes)};
+                while (frame[1].hasRemaining()) {
+                    channel.write(frame);
+                }
+                return true;
+            } catch (IOException e) {
+                logger.debug("Failed to write to {}:{}, reconnecting...", ip, port);
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                    channel = null;
+                }
+                return false;
+            }
+        }
+    }
+}
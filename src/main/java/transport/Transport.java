@@ -0,0 +1,110 @@
+package main.java.transport;
+
+import main.java.common.ConfigLoader;
+import main.java.common.NodeRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Moves authenticated messages (as bytes) between nodes, underneath the authenticated reliable links.
+ */
+public interface Transport {
+    /**
+     * Starts receiving messages on the port in a new thread.
+     * The buffer given to the receiver holds a single message and is reused afterwards,
+     * so it must be consumed before returning.
+     *
+     * @param port     the port number to listen on
+     * @param receiver called with every received message
+     */
+    void listen(int port, Consumer<ByteBuffer> receiver);
+
+    /**
+     * Sends a message to a node.
+     *
+     * @param node         the node to send the message to
+     * @param messageBytes the authenticated message
+     * @throws IOException if the message could not be sent
+     */
+    void send(NodeRegistry node, byte[] messageBytes) throws IOException;
+
+    /**
+     * Sends a message held by a buffer to a node, leaving the buffer unchanged so that it can be sent again.
+     * Transports that keep the message after returning get a copy of it.
+     *
+     * @param node         the node to send the message to
+     * @param messageBytes the authenticated message, between the position and the limit of the buffer
+     * @throws IOException if the message could not be sent
+     */
+    default void send(NodeRegistry node, ByteBuffer messageBytes) throws IOException {
+        if (messageBytes.hasArray() && messageBytes.arrayOffset() == 0 && messageBytes.position() == 0
+                && messageBytes.remaining() == messageBytes.array().length) {
+            send(node, messageBytes.array()); // wraps a whole array
+            return;
+        }
+        byte[] copy = new byte[messageBytes.remaining()];
+        messageBytes.get(messageBytes.position(), copy);
+        send(node, copy);
+    }
+
+    /**
+     * Restricts the senders the transport receives from to the known nodes, before any message is read.
+     * May be called several times, each call adding nodes. Transports without connections ignore it,
+     * since every datagram is authenticated anyway.
+     *
+     * @param nodes the nodes allowed to send messages
+     */
+    default void allowPeers(Collection<NodeRegistry> nodes) {
+    }
+
+    /**
+     * Check if the transport delivers every message, in order, by itself.
+     * Reliable transports need neither acknowledgments nor retransmissions.
+     *
+     * @return true if the transport is reliable
+     */
+    boolean isReliable();
+
+    /**
+     * Retrieves the size of the largest message sent as a whole, larger messages are fragmented.
+     *
+     * @return the maximum message size in bytes
+     */
+    int getMaxMessageSize();
+
+    /**
+     * Retrieves the number of messages received by each receiving socket of the transport.
+     *
+     * @return map from socket name to its number of received messages, empty if not tracked
+     */
+    default Map<String, Long> getReceiveCounts() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Creates the transport defined in the configuration file:
+     * TRANSPORT can be "udp" (default, fair loss links), "tcp" (persistent connections)
+     * or "memory" (nodes in the same JVM, see {@link InMemoryTransport}),
+     * and RECEIVE_THREADS sets how many sockets receive each UDP port.
+     *
+     * @param config the configuration of this process
+     * @param name   prefix for the names of the threads
+     * @return the transport defined in the configuration
+     */
+    static Transport fromConfig(ConfigLoader config, String name) {
+        String transport = config.getStringProperty("TRANSPORT", "udp");
+        if ("tcp".equalsIgnoreCase(transport)) {
+            return new TcpTransport(name);
+        }
+        if ("memory".equalsIgnoreCase(transport)) {
+            return new InMemoryTransport(name, config.getIntProperty("MEMORY_LATENCY_MICROS", 0),
+                    config.getIntProperty("MEMORY_REORDER_MICROS", 0), config.getIntProperty("MEMORY_LOSS_PERCENT", 0));
+        }
+        return new UdpTransport(name, config.getIntProperty("RECEIVE_THREADS", UdpTransport.DEFAULT_RECEIVE_THREADS));
+    }
+}
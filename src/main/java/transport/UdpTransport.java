@@ -0,0 +1,189 @@
+package main.java.transport;
+
+import main.java.common.NodeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sends every message in a UDP datagram (fair loss links), reliability is left to the authenticated reliable links.
+ * Each port can be received by several channels bound with SO_REUSEPORT, each with its own thread,
+ * the kernel spreading the datagrams among them by source address (so each node is received by a single thread).
+ */
+public class UdpTransport implements Transport {
+    private static final Logger logger = LoggerFactory.getLogger(UdpTransport.class);
+
+    private static final int MAX_BUFFER = 65536; // larger than any UDP datagram
+    private static final int MAX_DATAGRAM = 60000; // larger messages are fragmented
+    static final int DEFAULT_RECEIVE_THREADS = 1;
+
+    private final String name;
+    private final int receiveThreads;        // channels (and threads) receiving each port
+    private final DatagramChannel sendChannel; // long-lived channel shared by every outgoing message
+    private final Map<NodeRegistry, InetSocketAddress> addresses = new ConcurrentHashMap<>(); // resolved once per node
+    private final Map<String, AtomicLong> receiveCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for the UdpTransport class.
+     *
+     * @param name           prefix for the names of the threads
+     * @param receiveThreads the number of channels receiving each port
+     */
+    public UdpTransport(String name, int receiveThreads) {
+        this.name = name;
+        this.receiveThreads = Math.max(1, receiveThreads);
+        this.sendChannel = openSendChannel();
+    }
+
+    /**
+     * Opens the channel used to send messages to every other node.
+     *
+     * @return the opened channel, or null if it could not be opened
+     */
+    private static DatagramChannel openSendChannel() {
+        try {
+            return DatagramChannel.open();
+        } catch (IOException e) {
+            logger.error("Failed to open UDP channel for sending", e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts listening for UDP messages on the specified port, through one channel per receive thread.
+     * Falls back to a single channel if SO_REUSEPORT is not supported.
+     */
+    @Override
+    public void listen(int port, Consumer<ByteBuffer> receiver) {
+        List<DatagramChannel> channels = new ArrayList<>();
+        try {
+            int count = receiveThreads;
+            for (int i = 0; i < count; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                channels.add(channel);
+                if (count > 1 && !channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                    logger.warn("SO_REUSEPORT not supported, receiving port {} in a single thread", port);
+                    count = 1;
+                } else if (count > 1) {
+                    channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                channel.bind(new InetSocketAddress(port));
+            }
+        } catch (IOException e) {
+            logger.error("Failed to bind UDP channel to port {}", port, e);
+            closeAll(channels);
+            return;
+        }
+
+        for (int i = 0; i < channels.size(); i++) {
+            AtomicLong count = receiveCounts.computeIfAbsent(port + "#" + i, k -> new AtomicLong());
+            DatagramChannel channel = channels.get(i);
+            new Thread(() -> receiveLoop(port, channel, receiver, count), name + "-udp" + port + "-" + i).start();
+        }
+    }
+
+    /**
+     * Receives the datagrams of a channel until it fails.
+     * The non-blocking channel is polled through a selector and every datagram is read into
+     * the same direct buffer, being decoded exactly once.
+     */
+    private static void receiveLoop(int port, DatagramChannel channel, Consumer<ByteBuffer> receiver, AtomicLong count) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_BUFFER);
+        try (channel; Selector selector = Selector.open()) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            logger.debug("Listening for UDP messages on port {}...", port);
+
+            while (true) {
+                selector.select();
+                selector.selectedKeys().clear();
+
+                while (receivePacket(channel, buffer)) {
+                    count.incrementAndGet();
+                    receiver.accept(buffer);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error while listening for UDP messages", e);
+        }
+    }
+
+    private static void closeAll(List<DatagramChannel> channels) {
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Reads the next pending datagram from a non-blocking channel into the receiver buffer.
+     *
+     * @param channel the non-blocking UDP channel to receive from
+     * @param buffer  the receiver buffer, left ready to be decoded when a datagram is read
+     * @return true if a datagram was read, false if there is nothing left to read
+     * @throws IOException if an error occurs during packet reception
+     */
+    private static boolean receivePacket(DatagramChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        if (channel.receive(buffer) == null) {
+            return false;
+        }
+        buffer.flip();
+        return true;
+    }
+
+    @Override
+    public void send(NodeRegistry node, byte[] messageBytes) throws IOException {
+        send(node, ByteBuffer.wrap(messageBytes));
+    }
+
+    /**
+     * Sends the message straight from the buffer, without copying it when the buffer is direct.
+     */
+    @Override
+    public void send(NodeRegistry node, ByteBuffer messageBytes) throws IOException {
+        InetSocketAddress address = addresses.computeIfAbsent(node, k -> new InetSocketAddress(k.getIp(), k.getPort()));
+        int position = messageBytes.position();
+        try {
+            sendChannel.send(messageBytes, address);
+        } finally {
+            messageBytes.position(position);
+        }
+    }
+
+    @Override
+    public boolean isReliable() {
+        return false;
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_DATAGRAM;
+    }
+
+    /**
+     * Retrieves the number of datagrams received by each channel, named "port#index" (e.g. "5000#0").
+     */
+    @Override
+    public Map<String, Long> getReceiveCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        receiveCounts.forEach((channel, count) -> counts.put(channel, count.get()));
+        return counts;
+    }
+}
@@ -0,0 +1,107 @@
+package main.java.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts objects to and from JSON through a single ObjectMapper configured once,
+ * since building a mapper costs far more than using one.
+ * Readers are cached per target type (including generic types, given as TypeReference constants);
+ * mappers, readers and writers are thread safe once configured, so they are shared by every thread.
+ */
+public final class JsonSerializer {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectWriter writer = mapper.writer();
+    private static final ObjectWriter prettyWriter = mapper.writerWithDefaultPrettyPrinter();
+    private static final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    private JsonSerializer() {
+    }
+
+    /**
+     * Converts an object to a JSON string.
+     *
+     * @param value the object to convert
+     * @return the JSON string representation of the object
+     * @throws JsonProcessingException if the object cannot be serialized
+     */
+    public static String toJson(Object value) throws JsonProcessingException {
+        return writer.writeValueAsString(value);
+    }
+
+    /**
+     * Converts an object (or a JSON tree) to an indented JSON string, for files read by people.
+     *
+     * @param value the object to convert
+     * @return the indented JSON string representation of the object
+     * @throws JsonProcessingException if the object cannot be serialized
+     */
+    public static String toPrettyJson(Object value) throws JsonProcessingException {
+        return prettyWriter.writeValueAsString(value);
+    }
+
+    /**
+     * Creates an object from a JSON string.
+     *
+     * @param json the JSON string representation of the object
+     * @param type the class of the object
+     * @return the object
+     * @throws JsonProcessingException if the string is not a valid representation of the class
+     */
+    public static <T> T fromJson(String json, Class<T> type) throws JsonProcessingException {
+        return readerFor(type).readValue(json);
+    }
+
+    /**
+     * Creates an object of a generic type (e.g. a list of transactions) from a JSON string.
+     *
+     * @param json the JSON string representation of the object
+     * @param type the type of the object, preferably a constant so that it is not created on every call
+     * @return the object
+     * @throws JsonProcessingException if the string is not a valid representation of the type
+     */
+    public static <T> T fromJson(String json, TypeReference<T> type) throws JsonProcessingException {
+        return readerFor(type).readValue(json);
+    }
+
+    /**
+     * Creates an object from the JSON bytes of a stream.
+     *
+     * @param input the stream holding the JSON representation of the object
+     * @param type  the class of the object
+     * @return the object
+     * @throws IOException if the stream cannot be read or does not hold a valid representation of the class
+     */
+    public static <T> T fromJson(InputStream input, Class<T> type) throws IOException {
+        return readerFor(type).readValue(input);
+    }
+
+    /**
+     * Parses a JSON string into a tree, e.g. to indent it.
+     *
+     * @param json the JSON string
+     * @return the root of the tree
+     * @throws JsonProcessingException if the string is not valid JSON
+     */
+    public static JsonNode readTree(String json) throws JsonProcessingException {
+        return mapper.readTree(json);
+    }
+
+    private static ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, k -> mapper.readerFor(type));
+    }
+
+    private static ObjectReader readerFor(TypeReference<?> type) {
+        return readers.computeIfAbsent(type.getType(), k -> mapper.readerFor(type));
+    }
+}
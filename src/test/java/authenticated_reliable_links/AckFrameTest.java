@@ -0,0 +1,92 @@
+package main.java.authenticated_reliable_links;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class AckFrameTest {
+    private static final long BASE = 1L << 40; // ids of a running incarnation
+    private static final long MAX_RANGE = 1 << 16; // ids of the cumulative range of a frame
+
+    @Test
+    public void contentRoundTrips() {
+        List<AckFrame> frames = AckFrame.fromIds(new long[]{BASE, BASE + 1, BASE + 2, BASE + 4, BASE + 70});
+        assertEquals(1, frames.size());
+        AckFrame frame = frames.get(0).withFloor(BASE - 10);
+        AckFrame parsed = AckFrame.fromContent(BASE + 99, frame.toContent());
+        assertNotNull(parsed);
+        assertEquals(BASE, parsed.getBase());
+        assertEquals(BASE + 2, parsed.getCumulative());
+        assertArrayEquals(frame.getSelective(), parsed.getSelective());
+        assertEquals(BASE - 10, parsed.getFloor());
+        assertArrayEquals(new long[]{BASE + 4, BASE + 70}, selectiveIds(parsed));
+    }
+
+    @Test
+    public void emptyContentAcknowledgesTheAckId() {
+        AckFrame frame = AckFrame.fromContent(BASE, "");
+        assertNotNull(frame);
+        assertEquals(BASE, frame.getBase());
+        assertEquals(BASE, frame.getCumulative());
+        assertEquals(0, frame.getSelective().length);
+        assertEquals(0, frame.getFloor());
+    }
+
+    @Test
+    public void contentWithoutFloorIsAccepted() {
+        AckFrame frame = AckFrame.fromContent(BASE, BASE + ":" + (BASE + 1) + ":1");
+        assertNotNull(frame);
+        assertEquals(0, frame.getFloor());
+        assertArrayEquals(new long[]{BASE + 2}, selectiveIds(frame));
+    }
+
+    @Test
+    public void idsBeyondTheBitmapStartNewFrames() {
+        List<AckFrame> frames = AckFrame.fromIds(new long[]{BASE, BASE + 1 + 64 * 4, BASE + 1000});
+        assertEquals(3, frames.size());
+        assertEquals(BASE + 1 + 64 * 4, frames.get(1).getBase());
+        assertEquals(BASE + 1000, frames.get(2).getCumulative());
+    }
+
+    @Test
+    public void longRangesAreSplitWithinTheLimit() {
+        long[] ids = LongStream.range(BASE, BASE + MAX_RANGE + 64 * 4 + 10).toArray();
+        List<AckFrame> frames = AckFrame.fromIds(ids);
+        assertEquals(2, frames.size());
+        assertEquals(BASE + MAX_RANGE - 1, frames.get(0).getCumulative());
+        assertArrayEquals(LongStream.range(BASE + MAX_RANGE, BASE + MAX_RANGE + 64 * 4).toArray(), selectiveIds(frames.get(0)));
+        assertEquals(BASE + MAX_RANGE + 64 * 4, frames.get(1).getBase());
+        assertEquals(ids[ids.length - 1], frames.get(1).getCumulative());
+        frames.forEach(frame -> assertNotNull(AckFrame.fromContent(0, frame.toContent())));
+    }
+
+    @Test
+    public void rangesOverTheLimitAreRejected() {
+        assertNull(AckFrame.fromContent(0, BASE + ":" + (BASE + MAX_RANGE) + ":"));
+        assertNull(AckFrame.fromContent(0, BASE + ":" + (BASE - 1) + ":"));
+        assertNull(AckFrame.fromContent(0, Long.MIN_VALUE + ":" + Long.MAX_VALUE + ":")); // the range overflows
+        assertNotNull(AckFrame.fromContent(0, BASE + ":" + (BASE + MAX_RANGE - 1) + ":"));
+    }
+
+    @Test
+    public void malformedContentIsRejected() {
+        assertNull(AckFrame.fromContent(0, "1:2"));
+        assertNull(AckFrame.fromContent(0, "a:2:"));
+        assertNull(AckFrame.fromContent(0, "1:2:zz"));
+        assertNull(AckFrame.fromContent(0, "1:2:1,1,1,1,1")); // more words than any frame built
+        assertNull(AckFrame.fromContent(0, "1:2::x"));
+    }
+
+    private static long[] selectiveIds(AckFrame frame) {
+        List<Long> ids = new ArrayList<>();
+        frame.forEachSelectiveId(ids::add);
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
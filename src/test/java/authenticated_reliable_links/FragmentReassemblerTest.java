@@ -0,0 +1,99 @@
+package main.java.authenticated_reliable_links;
+
+import main.java.common.Message;
+import main.java.common.MessageCodec;
+import main.java.common.MessageType;
+import main.java.common.NetworkManager;
+import main.java.common.NodeRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FragmentReassemblerTest {
+    private static final long INCARNATION = 1L << NetworkManager.INCARNATION_SHIFT; // first id of incarnation 1
+
+    private final NodeRegistry sender = new NodeRegistry(1, "server", "localhost", 5001);
+
+    @Test
+    public void rebuildsMessageFromFragmentsInAnyOrder() {
+        FragmentReassembler reassembler = new FragmentReassembler(FragmentReassembler.MAX_MESSAGE_BYTES, 0);
+        List<Message> fragments = fragments(INCARNATION, 3);
+        assertNull(reassembler.add(sender, fragments.get(2)));
+        assertNull(reassembler.add(sender, fragments.get(0)));
+        assertNull(reassembler.add(sender, fragments.get(0))); // repeated
+        Message original = reassembler.add(sender, fragments.get(1));
+        assertNotNull(original);
+        assertEquals(INCARNATION, original.getId());
+        assertEquals(content(3), original.getContent());
+    }
+
+    @Test
+    public void refusesFragmentsOverTheBudgetExceptForTheOldestMessage() {
+        FragmentReassembler reassembler = new FragmentReassembler(FragmentReassembler.FRAGMENT_SIZE, 0);
+        List<Message> oldest = fragments(INCARNATION, 3);
+        List<Message> newer = fragments(INCARNATION + 100, 3);
+        assertTrue(reassembler.hasRoom(sender, oldest.get(0)));
+        reassembler.add(sender, oldest.get(0));
+        assertFalse(reassembler.hasRoom(sender, newer.get(0)));
+        assertTrue(reassembler.hasRoom(sender, oldest.get(1)));
+        reassembler.add(sender, oldest.get(1));
+        assertNotNull(reassembler.add(sender, oldest.get(2)));
+        assertTrue(reassembler.hasRoom(sender, newer.get(0))); // the budget was freed
+    }
+
+    @Test
+    public void dropsPartialMessagesOfEarlierIncarnations() {
+        FragmentReassembler reassembler = new FragmentReassembler(FragmentReassembler.FRAGMENT_SIZE, 0);
+        List<Message> beforeRestart = fragments(INCARNATION, 3);
+        List<Message> afterRestart = fragments(2 * INCARNATION, 3);
+        reassembler.add(sender, beforeRestart.get(0));
+        reassembler.add(sender, beforeRestart.get(1));
+        assertTrue(reassembler.hasRoom(sender, afterRestart.get(0))); // over the budget, but the older message is dropped
+        reassembler.add(sender, afterRestart.get(0));
+        assertNull(reassembler.add(sender, beforeRestart.get(2))); // its first fragments are gone
+    }
+
+    @Test
+    public void expiresIdlePartialMessages() throws InterruptedException {
+        FragmentReassembler reassembler = new FragmentReassembler(FragmentReassembler.FRAGMENT_SIZE, 1);
+        List<Message> stalled = fragments(INCARNATION, 3);
+        List<Message> next = fragments(INCARNATION + 100, 3);
+        reassembler.add(sender, stalled.get(0));
+        reassembler.expire();
+        assertFalse(reassembler.hasRoom(sender, next.get(0)));
+        Thread.sleep(1100);
+        reassembler.expire();
+        assertTrue(reassembler.hasRoom(sender, next.get(0)));
+    }
+
+    /**
+     * Splits an authenticated message of the sender as {@link ReliableLink} does, each fragment with its own id.
+     */
+    private List<Message> fragments(long originalId, int count) {
+        Message message = new Message(originalId, MessageType.WRITE, sender.getId(), content(count), 42L, 7);
+        byte[] bytes = new MessageCodec(true).encode(message).withAuthentication(new byte[32]);
+        List<Message> fragments = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            int offset = index * FragmentReassembler.FRAGMENT_SIZE;
+            byte[] chunk = Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + FragmentReassembler.FRAGMENT_SIZE));
+            fragments.add(new Message(originalId + 1 + index, MessageType.FRAGMENT, sender.getId(),
+                    FragmentReassembler.toContent(originalId, index, count, chunk)));
+        }
+        return fragments;
+    }
+
+    /**
+     * Content filling a given number of fragments once encoded.
+     */
+    private static String content(int count) {
+        return "a".repeat((count - 1) * FragmentReassembler.FRAGMENT_SIZE + 100);
+    }
+}
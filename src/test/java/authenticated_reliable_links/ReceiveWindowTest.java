@@ -0,0 +1,75 @@
+package main.java.authenticated_reliable_links;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReceiveWindowTest {
+    private static final long SIZE = 1 << 15; // slots of the window
+    private static final long BASE = 1L << 40; // ids of a running incarnation
+
+    @Test
+    public void duplicatesAreDetected() {
+        ReceiveWindow window = new ReceiveWindow();
+        assertTrue(window.markReceived(BASE));
+        assertFalse(window.markReceived(BASE));
+        assertTrue(window.markReceived(BASE + 1));
+    }
+
+    @Test
+    public void evictedIdsAreStillDuplicates() {
+        ReceiveWindow window = new ReceiveWindow();
+        assertTrue(window.markReceived(BASE));
+        assertTrue(window.markReceived(BASE + SIZE)); // replaces the first id in its slot
+        assertFalse(window.markReceived(BASE));
+        assertFalse(window.markReceived(BASE + SIZE));
+    }
+
+    @Test
+    public void oldIdsNeverReceivedAreNew() {
+        ReceiveWindow window = new ReceiveWindow();
+        assertTrue(window.markReceived(BASE + 2 * SIZE));
+        assertTrue(window.markReceived(BASE + SIZE)); // retransmitted late, older than the id in its slot
+        assertFalse(window.markReceived(BASE + SIZE));
+        assertTrue(window.markReceived(BASE));
+    }
+
+    @Test
+    public void idsBelowTheFloorAreDuplicates() {
+        ReceiveWindow window = new ReceiveWindow();
+        assertTrue(window.markReceived(BASE));
+        assertTrue(window.markReceived(BASE + SIZE));
+        window.cover(BASE + SIZE);
+        assertEquals(BASE + SIZE, window.getFloor());
+        assertFalse(window.markReceived(BASE)); // forgotten, but replayed below the floor
+        assertFalse(window.markReceived(BASE + 1)); // never received, but never sent again either
+        assertFalse(window.markReceived(BASE + SIZE));
+        assertTrue(window.markReceived(BASE + SIZE + 1));
+    }
+
+    @Test
+    public void floorNeverGoesBack() {
+        ReceiveWindow window = new ReceiveWindow();
+        window.cover(BASE);
+        window.cover(0); // no floor announced
+        window.cover(BASE - 1);
+        assertEquals(BASE, window.getFloor());
+        assertFalse(window.markReceived(BASE - 1));
+    }
+
+    @Test
+    public void evictedIdsAreBounded() {
+        ReceiveWindow window = new ReceiveWindow();
+        for (long id = BASE; id < BASE + 3 * SIZE; id++) {
+            assertTrue(window.markReceived(id));
+        }
+        // no floor was announced, the oldest evicted ids were forgotten and are now below the floor
+        assertEquals(BASE + SIZE, window.getFloor());
+        assertFalse(window.markReceived(BASE));
+        assertFalse(window.markReceived(BASE + SIZE)); // still evicted
+        assertFalse(window.markReceived(BASE + 3 * SIZE - 1));
+        assertTrue(window.markReceived(BASE + 3 * SIZE));
+    }
+}
@@ -0,0 +1,91 @@
+package main.java.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MessageCodecTest {
+    private static final long ID = (1L << 40) + 7; // id of a running incarnation
+
+    private final byte[] hmac = new byte[32]; // HMAC-SHA256 of a node
+
+    MessageCodecTest() {
+        Arrays.fill(hmac, (byte) 0x5a);
+    }
+
+    @Test
+    public void binaryRoundTrips() {
+        roundTrips(new MessageCodec(true));
+    }
+
+    @Test
+    public void jsonRoundTrips() {
+        roundTrips(new MessageCodec(false));
+    }
+
+    @Test
+    public void bundledMessagesHaveNoAuthentication() {
+        for (boolean binary : new boolean[]{true, false}) {
+            Message decoded = MessageCodec.decode(ByteBuffer.wrap(new MessageCodec(binary).encodeBundled(consensusMessage())));
+            assertNotNull(decoded);
+            assertEquals(ID, decoded.getId());
+            assertEquals("value \"quoted\" ü", decoded.getContent());
+            assertEquals(0, decoded.getAuthenticationField().length);
+        }
+    }
+
+    @Test
+    public void binaryFramesWithoutConsensusFieldsOrContent() {
+        Message message = new Message(ID, MessageType.HEARTBEAT, 2, null);
+        Message decoded = MessageCodec.decode(ByteBuffer.wrap(new MessageCodec(true).encode(message).withAuthentication(hmac)));
+        assertNotNull(decoded);
+        assertEquals(MessageType.HEARTBEAT, decoded.getType());
+        assertNull(decoded.getContent());
+        assertNull(decoded.getConsensusIdx());
+        assertNull(decoded.getEpochTS());
+        assertArrayEquals(hmac, decoded.getAuthenticationField());
+    }
+
+    @Test
+    public void invalidFramesAreDropped() {
+        byte[] frame = new MessageCodec(true).encode(consensusMessage()).withAuthentication(hmac);
+        assertNull(MessageCodec.decode(ByteBuffer.wrap(Arrays.copyOf(frame, frame.length - 1)))); // truncated
+        byte[] unknownVersion = frame.clone();
+        unknownVersion[0] = MessageCodec.VERSION + 1;
+        assertNull(MessageCodec.decode(ByteBuffer.wrap(unknownVersion)));
+        byte[] unknownType = frame.clone();
+        unknownType[1 + Long.BYTES + Integer.BYTES] = (byte) MessageType.values().length;
+        assertNull(MessageCodec.decode(ByteBuffer.wrap(unknownType)));
+        assertNull(MessageCodec.decode(ByteBuffer.allocate(0)));
+    }
+
+    /**
+     * Encodes a consensus message with the codec and decodes it from a buffer that does not start at its array's beginning,
+     * as received messages are read from a shared buffer.
+     */
+    private void roundTrips(MessageCodec codec) {
+        Message message = consensusMessage();
+        byte[] encoded = codec.encode(message).withAuthentication(hmac);
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 10).position(10).slice().put(encoded).flip();
+        Message decoded = MessageCodec.decode(buffer);
+        assertNotNull(decoded);
+        assertEquals(message.getId(), decoded.getId());
+        assertEquals(message.getType(), decoded.getType());
+        assertEquals(message.getSender(), decoded.getSender());
+        assertEquals(message.getContent(), decoded.getContent());
+        assertEquals(message.getConsensusIdx(), decoded.getConsensusIdx());
+        assertEquals(message.getEpochTS(), decoded.getEpochTS());
+        assertArrayEquals(hmac, decoded.getAuthenticationField());
+        assertEquals(message.getPropertiesToAuthenticate(), decoded.getPropertiesToAuthenticate());
+    }
+
+    private static Message consensusMessage() {
+        return new Message(ID, MessageType.WRITE, 3, "value \"quoted\" ü", 42L, 7);
+    }
+}
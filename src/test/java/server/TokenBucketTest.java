@@ -0,0 +1,50 @@
+package main.java.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    public void admitsTheBurstAtOnce() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void refillsAtTheRate() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 1);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        Thread.sleep(30); // 3 tokens, capped to the burst
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void neverHoldsMoreThanTheBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 3);
+        Thread.sleep(50); // 50 tokens refilled into a full bucket
+        assertEquals(3, admitted(bucket, 10));
+    }
+
+    @Test
+    public void burstIsAtLeastOneRequest() {
+        TokenBucket bucket = new TokenBucket(1, 0);
+        assertEquals(1, admitted(bucket, 10));
+    }
+
+    private static int admitted(TokenBucket bucket, int requests) {
+        int admitted = 0;
+        for (int i = 0; i < requests; i++) {
+            if (bucket.tryAcquire()) admitted++;
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,43 @@
+#!/bin/bash
+
+TN=8
+
+TEST_DIR="./tests_sh/test${TN}"
+CONFIG_FILE="$TEST_DIR/test${TN}_config.cfg"
+LOG_DIR="$TEST_DIR/logs"
+
+# shellcheck disable=SC1090
+source $CONFIG_FILE
+
+bash ./tests_sh/check_config_and_compile_tests.sh $TN > /dev/null 2>&1
+bash ./tests_sh/generate_keys_tests.sh $TN > /dev/null 2>&1
+
+# Delete the logs from the previous run if it exists
+rm -f $LOG_DIR/*.log
+
+# Print the test description
+echo "------------------------------------------------------------"
+echo "Test${TN} Description:"
+echo "    Number of servers: $NUM_SERVERS"
+echo "    Number of clients: 1"
+echo "    Transport: in-memory, all nodes in one process"
+echo "    Lost messages: $MEMORY_LOSS_PERCENT%"
+
+# Function to clean up
+cleanup() {
+    bash ./tests_sh/cleanup_tests.sh $TN > /dev/null 2>&1
+}
+trap cleanup EXIT
+
+#RUN CLUSTER
+# Start the servers and the client in the same JVM, sending requests for RUN_TIME seconds
+printf "Sending requests for %d seconds...\n" "$RUN_TIME"
+mvn -P jmh compile exec:exec -Djmh.args="ClusterBenchmark -wi 0 -i 1 -r $RUN_TIME -p configFile=$CONFIG_FILE -p servers=$NUM_SERVERS -p contentSize=64" &> $LOG_DIR/cluster.log
+
+# Check the log file for the measured requests, the run fails if any request misses a decision
+if grep -q "^ClusterBenchmark.request" $LOG_DIR/cluster.log && ! grep -q "<failure>" $LOG_DIR/cluster.log; then
+    printf "\e[32m[PASSED] TEST%d: Every request was answered by all servers.\e[0m\n" "$TN"
+else
+    printf "\e[31m[FAILED] TEST%d: Requests were not answered, see cluster.log.\e[0m\n" "$TN"
+fi
+echo "------------------------------------------------------------"
@@ -0,0 +1,108 @@
+#!/bin/bash
+
+TN=9
+
+TEST_DIR="./tests_sh/test${TN}"
+CONFIG_FILE="$TEST_DIR/test${TN}_config.cfg"
+LOG_DIR="$TEST_DIR/logs"
+TMP_DIR="/tmp"
+INIT_WAIT=25
+
+# shellcheck disable=SC1090
+source $CONFIG_FILE
+
+bash ./tests_sh/check_config_and_compile_tests.sh $TN > /dev/null 2>&1
+bash ./tests_sh/generate_keys_tests.sh $TN > /dev/null 2>&1
+
+LOG_LEVEL="info"
+if [[ "$1" == "-DEBUG" ]]; then
+    LOG_LEVEL="debug"
+fi
+
+# Delete the logs from the previous run if it exists
+rm -f $LOG_DIR/*.log
+
+# Create the tmp directory if it does not exist
+mkdir -p $TMP_DIR
+
+# Create named pipes (FIFO) for client input
+for ((i=0; i<NUM_CLIENTS; i++)); do
+    PIPE_PATH="$TMP_DIR/blockchain_client_fifo_$i"
+    rm -f "$PIPE_PATH"
+    mkfifo "$PIPE_PATH"
+done
+
+# Print the test description
+echo "------------------------------------------------------------"
+echo "Test${TN} Description:"
+echo "    Number of servers: $NUM_SERVERS"
+echo "    Number of clients: $NUM_CLIENTS"
+echo "    Leader ID: $LEADER_ID"
+echo "    Mempool size: $MEMPOOL_SIZE (every request is rejected with BUSY)"
+
+# Function to kill background processes and clean up
+cleanup() {
+    for ((i=0; i<NUM_SERVERS; i++)); do
+        eval kill \$SERVER_${i}_PID > /dev/null 2>&1
+    done
+    for ((i=0; i<NUM_CLIENTS; i++)); do
+        eval kill \$CLIENT_${i}_PID > /dev/null 2>&1
+        rm -f "$TMP_DIR/blockchain_client_fifo_$i"
+    done
+
+    bash ./tests_sh/cleanup_tests.sh $TN > /dev/null 2>&1
+}
+trap cleanup EXIT
+
+#RUN SERVERS
+# Start correct servers
+for ((i=0; i<NUM_SERVERS; i++)); do
+    mvn exec:java -Dexec.mainClass=main.java.server.BlockchainNetworkServer -Dexec.args="$i $CONFIG_FILE" -DLOG_LEVEL=$LOG_LEVEL &> $LOG_DIR/server_$i.log &
+    eval SERVER_${i}_PID=$!
+    # shellcheck disable=SC2181
+    if [ $? -ne 0 ]; then
+        echo "Failed to start server $i."
+        exit 1
+    fi
+done
+
+#RUN CLIENTS
+# Start clients and redirect input from their respective named pipes
+for ((i=0; i<NUM_CLIENTS; i++)); do
+    PIPE_PATH="$TMP_DIR/blockchain_client_fifo_$i"
+    mvn exec:java -Dexec.mainClass=main.java.client.BlockchainClient -Dexec.args="$i $CONFIG_FILE" -DLOG_LEVEL=$LOG_LEVEL < "$PIPE_PATH" &> $LOG_DIR/client_$i.log &
+    eval CLIENT_${i}_PID=$!
+    # shellcheck disable=SC2181
+    if [ $? -ne 0 ]; then
+        echo "Failed to start client $i."
+        exit 1
+    fi
+done
+
+sleep $INIT_WAIT
+
+# Send input to the client process through the named pipe
+for ((i=0; i<NUM_CLIENTS; i++)); do
+    echo "send -amount $i -toid 0" > "$TMP_DIR/blockchain_client_fifo_$i"
+done
+
+# Wait for the system to process the input
+printf "Sleeping for %d seconds to allow the system to process the input...\n" "$SLEEP_TIME"
+sleep "$SLEEP_TIME"
+
+# Check the log files: the clients back off after the BUSY replies, then give up
+ALL_PASSED=true
+for ((i=0; i<NUM_CLIENTS; i++)); do
+    if ! grep -q "Servers are busy, sending request" $LOG_DIR/client_$i.log || ! grep -q "the servers are busy" $LOG_DIR/client_$i.log; then
+        printf "\e[31m[FAILED] TEST%d: Expected BUSY rejection not found in client_%d.log.\e[0m\n" "$TN" "$i"
+        ALL_PASSED=false
+    elif grep -q "Status: Success" $LOG_DIR/client_$i.log; then
+        printf "\e[31m[FAILED] TEST%d: Unexpected confirmed request in client_%d.log.\e[0m\n" "$TN" "$i"
+        ALL_PASSED=false
+    fi
+done
+
+if [ "$ALL_PASSED" = true ]; then
+    printf "\e[32m[PASSED] TEST%d: Every request was rejected with BUSY replies.\e[0m\n" "$TN"
+fi
+echo "------------------------------------------------------------"